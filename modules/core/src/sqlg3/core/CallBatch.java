@@ -0,0 +1,198 @@
+package sqlg3.core;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of business method calls executed together in one transaction. For remote transactions
+ * the whole batch is sent in one request, so several calls cost one network round trip.
+ * <pre>
+ * CallBatch batch = new CallBatch(db.getSimpleTransaction());
+ * ITest test = batch.getInterface(ITest.class);
+ * test.getCustomers();
+ * test.getOrders(customerId);
+ * List&lt;CallBatch.Result&gt; results = batch.execute();
+ * List&lt;Customer&gt; customers = results.get(0).get();
+ * </pre>
+ * Calls are executed in the order they were made. If a call fails, the following calls are not executed
+ * and the transaction is rolled back (if it is a simple transaction; user-managed {@link ITransaction} is
+ * not rolled back). {@link InformationException} with <code>error == false</code> does not stop the batch.
+ * <p>
+ * Transactions implementing {@link Executor} (remote and local simple transactions) execute the batch
+ * in one transaction; for other transactions calls are made one by one.
+ */
+public final class CallBatch {
+
+    /**
+     * Business method call recorded in the batch
+     */
+    public static final class Call implements Serializable {
+
+        public final Class<? extends IDBCommon> iface;
+        public final String method;
+        public final Class<?>[] paramTypes;
+        public final Object[] params;
+
+        public Call(Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes, Object[] params) {
+            this.iface = iface;
+            this.method = method;
+            this.paramTypes = paramTypes;
+            this.params = params;
+        }
+
+        public String toString() {
+            return iface.getName() + "." + method;
+        }
+    }
+
+    /**
+     * Result of business method call: either returned value or thrown exception
+     */
+    public static final class Result implements Serializable {
+
+        public final Object value;
+        public final Throwable error;
+
+        public Result(Object value, Throwable error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * Returns value returned by the method or rethrows exception thrown by the method.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get() throws Throwable {
+            if (error != null)
+                throw error;
+            return (T) value;
+        }
+    }
+
+    /**
+     * Transaction which can execute the whole batch at once
+     */
+    public interface Executor {
+
+        List<Result> executeBatch(List<Call> calls) throws SQLException;
+    }
+
+    private final ISimpleTransaction trans;
+    private final List<Call> calls = new ArrayList<>();
+
+    public CallBatch(ISimpleTransaction trans) {
+        this.trans = trans;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || void.class.equals(type)) {
+            return null;
+        } else if (boolean.class.equals(type)) {
+            return false;
+        } else if (char.class.equals(type)) {
+            return (char) 0;
+        } else if (byte.class.equals(type)) {
+            return (byte) 0;
+        } else if (short.class.equals(type)) {
+            return (short) 0;
+        } else if (int.class.equals(type)) {
+            return 0;
+        } else if (long.class.equals(type)) {
+            return 0L;
+        } else if (float.class.equals(type)) {
+            return 0f;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Returns data access interface which records calls to the batch instead of executing them.
+     * Its methods return null (or zero for primitive types), actual results are returned by {@link #execute()}.
+     */
+    public <T extends IDBCommon> T getInterface(Class<T> iface) {
+        return iface.cast(Proxy.newProxyInstance(
+            iface.getClassLoader(),
+            new Class<?>[] {iface},
+            (proxy, method, args) -> {
+                if (Object.class.equals(method.getDeclaringClass()))
+                    return method.invoke(this, args);
+                synchronized (calls) {
+                    calls.add(new Call(iface, method.getName(), method.getParameterTypes(), args));
+                }
+                return defaultValue(method.getReturnType());
+            }
+        ));
+    }
+
+    /**
+     * @return number of calls recorded
+     */
+    public int size() {
+        synchronized (calls) {
+            return calls.size();
+        }
+    }
+
+    /**
+     * Executes recorded calls and clears the batch.
+     *
+     * @return results of calls in the order they were made; calls not executed because of previous
+     * failure have no result
+     */
+    public List<Result> execute() throws SQLException {
+        List<Call> toExecute;
+        synchronized (calls) {
+            toExecute = new ArrayList<>(calls);
+            calls.clear();
+        }
+        if (toExecute.isEmpty())
+            return Collections.emptyList();
+        if (trans instanceof Executor) {
+            return ((Executor) trans).executeBatch(toExecute);
+        } else {
+            return executeCalls(trans, toExecute);
+        }
+    }
+
+    /**
+     * Returns true if call failed and batch transaction should be rolled back.
+     */
+    public static boolean isFailure(Result result) {
+        if (result.error == null)
+            return false;
+        if (result.error instanceof InformationException)
+            return ((InformationException) result.error).error;
+        return true;
+    }
+
+    /**
+     * For internal use.
+     * Executes calls one by one until the first failure.
+     */
+    public static List<Result> executeCalls(ISimpleTransaction trans, List<Call> calls) throws SQLException {
+        List<Result> results = new ArrayList<>(calls.size());
+        for (Call call : calls) {
+            Object impl = trans.getInterface(call.iface);
+            Result result;
+            try {
+                Method method = impl.getClass().getMethod(call.method, call.paramTypes);
+                result = new Result(method.invoke(impl, call.params), null);
+            } catch (InvocationTargetException ex) {
+                result = new Result(null, ex.getTargetException());
+            } catch (ReflectiveOperationException ex) {
+                throw new SQLGException("Error calling " + call, ex);
+            }
+            results.add(result);
+            if (isFailure(result))
+                break;
+        }
+        return results;
+    }
+}
@@ -51,4 +51,23 @@ public interface ITransaction extends ISimpleTransaction {
             return result;
         }
     }
+
+    /**
+     * Runs action in transaction, retrying it in a new transaction if it fails with error
+     * classified as retryable by the policy.
+     */
+    static void runAction(IDBInterface db, RetryPolicy policy, Action action) throws SQLException {
+        policy.run(() -> {
+            runAction(db, action);
+            return null;
+        });
+    }
+
+    /**
+     * Runs call in transaction, retrying it in a new transaction if it fails with error
+     * classified as retryable by the policy.
+     */
+    static <T> T runCall(IDBInterface db, RetryPolicy policy, Call<T> call) throws SQLException {
+        return policy.run(() -> runCall(db, call));
+    }
 }
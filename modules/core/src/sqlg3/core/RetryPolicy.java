@@ -0,0 +1,134 @@
+package sqlg3.core;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Policy of retrying transactions failed because of concurrency conflicts (serialization failures, deadlocks).
+ * Used by {@link ITransaction#runAction(IDBInterface, RetryPolicy, ITransaction.Action)} and
+ * {@link ITransaction#runCall(IDBInterface, RetryPolicy, ITransaction.Call)}.
+ * Delay between attempts grows exponentially and is randomized to avoid repeated conflicts.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Maximum number of attempts (including the first one)
+     */
+    public final int maxAttempts;
+    /**
+     * Maximum time in milliseconds since the first attempt after which no more attempts are made
+     */
+    public final long maxElapsed;
+    /**
+     * Delay in milliseconds before the second attempt
+     */
+    public final long initialDelay;
+    /**
+     * Maximum delay in milliseconds between attempts
+     */
+    public final long maxDelay;
+    /**
+     * Fraction of delay which is randomized, from 0 (no randomization) to 1
+     */
+    public final double jitter;
+    /**
+     * Returns true for errors which can be fixed by retrying transaction
+     */
+    public final Predicate<SQLException> retryable;
+    public final RetryStats stats = new RetryStats();
+
+    public RetryPolicy(int maxAttempts, long maxElapsed, long initialDelay, long maxDelay, double jitter,
+                       Predicate<SQLException> retryable) {
+        this.maxAttempts = maxAttempts;
+        this.maxElapsed = maxElapsed;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+        this.retryable = retryable;
+    }
+
+    /**
+     * Policy with 5 attempts within 10 seconds, delays from 20 ms to 1 s and generic error classification
+     * (see {@link #isConcurrencyFailure}).
+     */
+    public static RetryPolicy createDefault() {
+        return new RetryPolicy(5, 10000, 20, 1000, 0.5, RetryPolicy::isConcurrencyFailure);
+    }
+
+    /**
+     * Same as {@link #createDefault()}, but errors are also classified by vendor-specific error codes,
+     * usually by {@code GlobalContext.isRetryable}:
+     * <pre>
+     * RetryPolicy.createDefault(global::isRetryable)
+     * </pre>
+     */
+    public static RetryPolicy createDefault(Predicate<SQLException> vendorRetryable) {
+        return new RetryPolicy(5, 10000, 20, 1000, 0.5, ex -> isConcurrencyFailure(ex) || vendorRetryable.test(ex));
+    }
+
+    /**
+     * Generic classification of errors: SQLState 40001 (serialization failure) and 40P01 (deadlock).
+     * Other class 40 states are not retried: 40002 (integrity constraint violation) is not a concurrency
+     * failure, and after 40003 (statement completion unknown) the work could be applied twice.
+     * Vendor error codes are classified by database-specific code (see {@link #createDefault(Predicate)}).
+     * Chained exceptions ({@link SQLException#getNextException()}) are checked too.
+     */
+    public static boolean isConcurrencyFailure(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            String state = e.getSQLState();
+            if ("40001".equals(state) || "40P01".equals(state))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns delay in milliseconds before given attempt.
+     *
+     * @param attempt attempt number (2 for the first retry)
+     */
+    public long getDelay(int attempt) {
+        int shift = Math.min(attempt - 2, 30);
+        long delay = Math.min(maxDelay, initialDelay << Math.max(shift, 0));
+        double random = ThreadLocalRandom.current().nextDouble();
+        return Math.max(0L, (long) (delay * (1.0 - jitter * random)));
+    }
+
+    interface Attempt<T> {
+
+        T run() throws SQLException;
+    }
+
+    <T> T run(Attempt<T> attempt) throws SQLException {
+        stats.calls.incrementAndGet();
+        long start = System.currentTimeMillis();
+        int attempts = 1;
+        while (true) {
+            try {
+                T result = attempt.run();
+                if (attempts > 1) {
+                    stats.recovered.incrementAndGet();
+                }
+                return result;
+            } catch (SQLException ex) {
+                if (!retryable.test(ex))
+                    throw ex;
+                long delay = getDelay(attempts + 1);
+                if (attempts >= maxAttempts || System.currentTimeMillis() - start + delay > maxElapsed) {
+                    stats.exhausted.incrementAndGet();
+                    throw ex;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException iex) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+                stats.backoffTime.addAndGet(delay);
+                stats.retries.incrementAndGet();
+                attempts++;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package sqlg3.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry statistics collected by {@link RetryPolicy}.
+ */
+public final class RetryStats {
+
+    /**
+     * Number of calls run with retry policy
+     */
+    public final AtomicLong calls = new AtomicLong();
+    /**
+     * Number of retries (attempts after the first one)
+     */
+    public final AtomicLong retries = new AtomicLong();
+    /**
+     * Number of calls succeeded after at least one retry
+     */
+    public final AtomicLong recovered = new AtomicLong();
+    /**
+     * Number of calls failed with retryable error after all allowed attempts
+     */
+    public final AtomicLong exhausted = new AtomicLong();
+    /**
+     * Total time in milliseconds spent waiting between attempts
+     */
+    public final AtomicLong backoffTime = new AtomicLong();
+
+    public String toString() {
+        return "calls: " + calls + ", retries: " + retries + ", recovered: " + recovered +
+               ", exhausted: " + exhausted + ", backoff time: " + backoffTime + " ms";
+    }
+}
@@ -0,0 +1,15 @@
+package sqlg3.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks business method parameter which value determines database shard for the call
+ * (see {@code sqlg3.runtime.ShardedConnectionManager}). Preprocessor copies it to data access interface.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
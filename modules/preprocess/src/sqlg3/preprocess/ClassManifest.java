@@ -0,0 +1,160 @@
+package sqlg3.preprocess;
+
+import java.io.IOException;
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Manifest of classes transferred in remote calls (row types, their field types, business method parameter
+ * and return types). Serializers register the classes with IDs equal to their position in the manifest,
+ * so class names are not sent over the wire (see <code>sqlg3.remote.kryo.KryoManifest</code>).
+ * <p>
+ * New classes are appended to the end of existing manifest and classes are never removed, so IDs
+ * remain stable when only some files are preprocessed.
+ * <p>
+ * Each line contains class name optionally followed by the name of its generated serializer class.
+ */
+final class ClassManifest {
+
+    static final String VERSION_PREFIX = "version=";
+
+    private static final String[] STANDARD = {
+        "java.util.ArrayList", "java.util.HashMap", "java.util.HashSet", "java.math.BigDecimal", "java.math.BigInteger",
+        "java.util.Date", "java.sql.Date", "java.sql.Time", "java.sql.Timestamp",
+        "java.time.LocalDate", "java.time.LocalTime", "java.time.LocalDateTime", "java.time.OffsetDateTime",
+        "[B", "[I", "[J", "[Ljava.lang.String;", "[Ljava.lang.Object;"
+    };
+
+    private final Set<String> classes = new LinkedHashSet<>();
+    private final Map<String, String> serializers = new HashMap<>();
+
+    private static boolean isConcrete(Class<?> cls) {
+        return !cls.isPrimitive() && !cls.isInterface() && !Modifier.isAbstract(cls.getModifiers()) && !cls.isAnonymousClass();
+    }
+
+    private void addClass(Class<?> cls) {
+        if (cls.isArray()) {
+            addType(cls.getComponentType());
+            if (isConcrete(cls.getComponentType()) || cls.getComponentType().isPrimitive()) {
+                classes.add(cls.getName());
+            }
+        } else if (isConcrete(cls)) {
+            classes.add(cls.getName());
+        }
+    }
+
+    /**
+     * Adds class of the type and classes of its type arguments.
+     */
+    void addType(Type type) {
+        if (type instanceof Class) {
+            addClass((Class<?>) type);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType pt = (ParameterizedType) type;
+            addType(pt.getRawType());
+            for (Type arg : pt.getActualTypeArguments()) {
+                addType(arg);
+            }
+        } else if (type instanceof GenericArrayType) {
+            addType(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                addType(bound);
+            }
+        }
+    }
+
+    /**
+     * Adds row type and types of its fields.
+     */
+    void addRowType(Class<?> rowType) {
+        addClass(rowType);
+        for (Field field : rowType.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+                continue;
+            addType(field.getGenericType());
+        }
+    }
+
+    /**
+     * Sets generated serializer for row type.
+     */
+    void addSerializer(Class<?> rowType, String serializerClass) {
+        classes.add(rowType.getName());
+        serializers.put(rowType.getName(), serializerClass);
+    }
+
+    void addMethod(Method method) {
+        addType(method.getGenericReturnType());
+        for (Type type : method.getGenericParameterTypes()) {
+            addType(type);
+        }
+    }
+
+    static String getVersion(List<String> classes) {
+        CRC32 crc = new CRC32();
+        for (String cls : classes) {
+            crc.update(cls.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Appends new classes to the manifest file, creating it if it does not exist.
+     */
+    void write(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+        Map<String, String> lineSerializers = new HashMap<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith(VERSION_PREFIX))
+                    continue;
+                String[] parts = trimmed.split("\\s+");
+                names.add(parts[0]);
+                if (parts.length > 1) {
+                    lineSerializers.put(parts[0], parts[1]);
+                }
+            }
+        } else {
+            names.addAll(Arrays.asList(STANDARD));
+        }
+        Set<String> existing = new HashSet<>(names);
+        List<String> added = new ArrayList<>();
+        for (String cls : classes) {
+            if (!existing.contains(cls)) {
+                added.add(cls);
+            }
+        }
+        boolean serializersChanged = false;
+        for (Map.Entry<String, String> entry : serializers.entrySet()) {
+            String was = lineSerializers.put(entry.getKey(), entry.getValue());
+            serializersChanged |= !entry.getValue().equals(was);
+        }
+        if (added.isEmpty() && !serializersChanged && Files.exists(file))
+            return;
+        Collections.sort(added);
+        names.addAll(added);
+        List<String> lines = new ArrayList<>(names.size());
+        for (String name : names) {
+            String serializer = lineSerializers.get(name);
+            lines.add(serializer == null ? name : name + " " + serializer);
+        }
+        StringBuilder buf = new StringBuilder();
+        buf.append("# THIS FILE IS MACHINE-GENERATED, DO NOT EDIT\n");
+        buf.append(VERSION_PREFIX).append(getVersion(lines)).append('\n');
+        for (String line : lines) {
+            buf.append(line).append('\n');
+        }
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Files.write(file, buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,6 +2,7 @@ package sqlg3.preprocess;
 
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.Token;
+import sqlg3.core.ShardKey;
 import sqlg3.preprocess.lexer.Java8Lexer;
 
 import java.io.IOException;
@@ -19,7 +20,7 @@ import java.util.stream.Collectors;
 
 final class CodeGenerator {
 
-    private static final String GENERATED_WARNING = "// THIS FILE IS MACHINE-GENERATED, DO NOT EDIT";
+    static final String GENERATED_WARNING = "// THIS FILE IS MACHINE-GENERATED, DO NOT EDIT";
 
     private final StringBuilder buf = new StringBuilder();
     private final String tab;
@@ -52,10 +53,13 @@ final class CodeGenerator {
         buf.append("public interface " + interfaceName + " extends sqlg3.core.IDBCommon" + addIface + " {\n");
     }
 
-    void addMethod(Method method, String javadoc) {
+    void addMethod(Method method, String javadoc, boolean readOnly) {
         if (javadoc != null) {
             buf.append("\n" + tab + javadoc);
         }
+        if (readOnly) {
+            buf.append("\n" + tab + "@sqlg3.core.ReadOnlyCall");
+        }
         buf.append("\n" + tab);
         buf.append(ClassUtils.getClassName(method.getGenericReturnType()) + " " + method.getName() + "(");
         Type[] parameterTypes = method.getGenericParameterTypes();
@@ -65,6 +69,9 @@ final class CodeGenerator {
             if (i > 0) {
                 buf.append(", ");
             }
+            if (parameters[i].isAnnotationPresent(ShardKey.class)) {
+                buf.append("@sqlg3.core.ShardKey ");
+            }
             buf.append(ClassUtils.getClassName(parameterTypes[i]) + " " + paramName);
         }
         List<Type> excs = new ArrayList<>(Arrays.asList(method.getGenericExceptionTypes()));
@@ -0,0 +1,225 @@
+package sqlg3.preprocess;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Generates Kryo serializer for row type class or record. Serializer writes bitmap of null fields and
+ * then non-null fields in the constructor order using calls specialized for field types, so neither
+ * reflection nor instantiator strategy is used. Interface row types are not supported (they are implemented
+ * by proxies). Lists of row types with generated serializer are written row by row with this serializer
+ * instead of columnar format.
+ */
+final class KryoSerializerGenerator {
+
+    private static final String KRYO_PACK = "com.esotericsoftware.kryo.";
+
+    private final String tab;
+    private final Class<?> rowType;
+    private final RowTypeInfo info;
+
+    KryoSerializerGenerator(String tab, Class<?> rowType, RowTypeInfo info) {
+        this.tab = tab;
+        this.rowType = rowType;
+        this.info = info;
+    }
+
+    static boolean canGenerate(Class<?> rowType) {
+        return !rowType.isInterface();
+    }
+
+    static String getPackage(Class<?> rowType) {
+        String name = rowType.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : name.substring(0, dot);
+    }
+
+    /**
+     * @return simple name of the generated serializer, e.g. <code>Dao_RowKryoSerializer</code> for
+     * row type <code>Dao.Row</code>
+     */
+    static String getSerializerName(Class<?> rowType) {
+        String name = rowType.getName();
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).replace('$', '_') + "KryoSerializer";
+    }
+
+    static String getSerializerClass(Class<?> rowType) {
+        String pack = getPackage(rowType);
+        String name = getSerializerName(rowType);
+        return pack == null ? name : pack + "." + name;
+    }
+
+    private static String nullBit(int index) {
+        return "(nulls" + (index / 64) + " & (1L << " + (index % 64) + ")) == 0";
+    }
+
+    /**
+     * Returns true if values of the type are always of that exact class, so class should not be written
+     */
+    private static boolean isKnownClass(Class<?> type) {
+        return Modifier.isFinal(type.getModifiers()) || type.isEnum() ||
+               java.math.BigDecimal.class.equals(type) || java.math.BigInteger.class.equals(type);
+    }
+
+    private static String writeValue(Class<?> type, String value) {
+        if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+            return "output.writeBoolean(" + value + ");";
+        } else if (byte.class.equals(type) || Byte.class.equals(type)) {
+            return "output.writeByte(" + value + ");";
+        } else if (short.class.equals(type) || Short.class.equals(type)) {
+            return "output.writeShort(" + value + ");";
+        } else if (char.class.equals(type) || Character.class.equals(type)) {
+            return "output.writeChar(" + value + ");";
+        } else if (int.class.equals(type) || Integer.class.equals(type)) {
+            return "output.writeVarInt(" + value + ", false);";
+        } else if (long.class.equals(type) || Long.class.equals(type)) {
+            return "output.writeVarLong(" + value + ", false);";
+        } else if (float.class.equals(type) || Float.class.equals(type)) {
+            return "output.writeFloat(" + value + ");";
+        } else if (double.class.equals(type) || Double.class.equals(type)) {
+            return "output.writeDouble(" + value + ");";
+        } else if (String.class.equals(type)) {
+            return "output.writeString(" + value + ");";
+        } else if (byte[].class.equals(type)) {
+            return "output.writeVarInt(" + value + ".length, true); output.writeBytes(" + value + ");";
+        } else if (java.sql.Timestamp.class.equals(type)) {
+            return "output.writeVarLong(" + value + ".getTime(), false); output.writeVarInt(" + value + ".getNanos(), true);";
+        } else if (java.util.Date.class.equals(type) || java.sql.Date.class.equals(type) || java.sql.Time.class.equals(type)) {
+            return "output.writeVarLong(" + value + ".getTime(), false);";
+        } else if (java.time.LocalDate.class.equals(type)) {
+            return "output.writeVarLong(" + value + ".toEpochDay(), false);";
+        } else if (isKnownClass(type)) {
+            return "kryo.writeObject(output, " + value + ");";
+        } else {
+            return "kryo.writeClassAndObject(output, " + value + ");";
+        }
+    }
+
+    /**
+     * @return statements assigning value read from <code>input</code> to variable
+     */
+    private static String readValue(Class<?> type, String typeName, String var) {
+        String read;
+        if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+            read = "input.readBoolean()";
+        } else if (byte.class.equals(type) || Byte.class.equals(type)) {
+            read = "input.readByte()";
+        } else if (short.class.equals(type) || Short.class.equals(type)) {
+            read = "input.readShort()";
+        } else if (char.class.equals(type) || Character.class.equals(type)) {
+            read = "input.readChar()";
+        } else if (int.class.equals(type) || Integer.class.equals(type)) {
+            read = "input.readVarInt(false)";
+        } else if (long.class.equals(type) || Long.class.equals(type)) {
+            read = "input.readVarLong(false)";
+        } else if (float.class.equals(type) || Float.class.equals(type)) {
+            read = "input.readFloat()";
+        } else if (double.class.equals(type) || Double.class.equals(type)) {
+            read = "input.readDouble()";
+        } else if (String.class.equals(type)) {
+            read = "input.readString()";
+        } else if (byte[].class.equals(type)) {
+            read = "input.readBytes(input.readVarInt(true))";
+        } else if (java.sql.Timestamp.class.equals(type)) {
+            return var + " = new java.sql.Timestamp(input.readVarLong(false)); " + var + ".setNanos(input.readVarInt(true));";
+        } else if (java.util.Date.class.equals(type) || java.sql.Date.class.equals(type) || java.sql.Time.class.equals(type)) {
+            read = "new " + typeName + "(input.readVarLong(false))";
+        } else if (java.time.LocalDate.class.equals(type)) {
+            read = "java.time.LocalDate.ofEpochDay(input.readVarLong(false))";
+        } else if (isKnownClass(type)) {
+            read = "kryo.readObject(input, " + typeName + ".class)";
+        } else {
+            read = "(" + typeName + ") kryo.readClassAndObject(input)";
+        }
+        return var + " = " + read + ";";
+    }
+
+    String generate() {
+        String pack = getPackage(rowType);
+        String className = getSerializerName(rowType);
+        String rowClass = ClassUtils.getClassName(rowType);
+        List<ColumnInfo> columns = info.getColumns();
+
+        StringBuilder buf = new StringBuilder();
+        if (pack != null) {
+            buf.append("package ").append(pack).append(";\n\n");
+        }
+        buf.append(CodeGenerator.GENERATED_WARNING).append('\n');
+        buf.append("@SuppressWarnings(\"UnnecessaryFullyQualifiedName\")\n");
+        buf.append("public final class ").append(className).append(" extends ").append(KRYO_PACK).append("Serializer<").append(rowClass).append("> {\n\n");
+
+        buf.append(tab).append("public ").append(className).append("() {\n");
+        buf.append(tab).append(tab).append("super(false, true);\n");
+        buf.append(tab).append("}\n\n");
+
+        int nullable = 0;
+        for (ColumnInfo column : columns) {
+            if (!info.getColumnClass(column).isPrimitive()) {
+                nullable++;
+            }
+        }
+        int bitmaps = (nullable + 63) / 64;
+
+        String t2 = tab + tab;
+        buf.append(tab).append("@Override\n");
+        buf.append(tab).append("public void write(").append(KRYO_PACK).append("Kryo kryo, ").append(KRYO_PACK).append("io.Output output, ").append(rowClass).append(" row) {\n");
+        for (int j = 0; j < columns.size(); j++) {
+            ColumnInfo column = columns.get(j);
+            buf.append(t2).append(ClassUtils.getClassName(info.getColumnClass(column))).append(" v").append(j).append(" = row.").append(column.name).append("();\n");
+        }
+        for (int i = 0; i < bitmaps; i++) {
+            buf.append(t2).append("long nulls").append(i).append(" = 0L;\n");
+        }
+        int bit = 0;
+        for (int j = 0; j < columns.size(); j++) {
+            ColumnInfo column = columns.get(j);
+            if (info.getColumnClass(column).isPrimitive())
+                continue;
+            buf.append(t2).append("if (v").append(j).append(" == null) nulls").append(bit / 64).append(" |= 1L << ").append(bit % 64).append(";\n");
+            bit++;
+        }
+        for (int i = 0; i < bitmaps; i++) {
+            buf.append(t2).append("output.writeVarLong(nulls").append(i).append(", true);\n");
+        }
+        for (int j = 0; j < columns.size(); j++) {
+            Class<?> type = info.getColumnClass(columns.get(j));
+            String write = writeValue(type, "v" + j);
+            if (type.isPrimitive()) {
+                buf.append(t2).append(write).append('\n');
+            } else {
+                buf.append(t2).append("if (v").append(j).append(" != null) { ").append(write).append(" }\n");
+            }
+        }
+        buf.append(tab).append("}\n\n");
+
+        buf.append(tab).append("@Override\n");
+        buf.append(tab).append("public ").append(rowClass).append(" read(").append(KRYO_PACK).append("Kryo kryo, ").append(KRYO_PACK).append("io.Input input, Class<? extends ").append(rowClass).append("> type) {\n");
+        for (int i = 0; i < bitmaps; i++) {
+            buf.append(t2).append("long nulls").append(i).append(" = input.readVarLong(true);\n");
+        }
+        bit = 0;
+        StringBuilder args = new StringBuilder();
+        for (int j = 0; j < columns.size(); j++) {
+            Class<?> type = info.getColumnClass(columns.get(j));
+            String typeName = ClassUtils.getClassName(type);
+            String var = "v" + j;
+            String read = readValue(type, typeName, var);
+            if (type.isPrimitive()) {
+                buf.append(t2).append(typeName).append(' ').append(read).append('\n');
+            } else {
+                buf.append(t2).append(typeName).append(' ').append(var).append(" = null;\n");
+                buf.append(t2).append("if (").append(nullBit(bit)).append(") { ").append(read).append(" }\n");
+                bit++;
+            }
+            if (j > 0) {
+                args.append(", ");
+            }
+            args.append(var);
+        }
+        buf.append(t2).append("return new ").append(rowClass).append('(').append(args).append(");\n");
+        buf.append(tab).append("}\n");
+        buf.append("}\n");
+        return buf.toString();
+    }
+}
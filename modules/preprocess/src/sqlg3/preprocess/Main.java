@@ -94,6 +94,24 @@ public final class Main {
         });
     }
 
+    /**
+     * Generates Kryo serializer for row type next to its source file.
+     */
+    private void generateSerializer(List<Path> srcRoots, String tab, Class<?> cls, RowTypeInfo rowType,
+                                    ClassManifest manifest) throws ParseException, IOException {
+        if (!o.kryoSerializers || !KryoSerializerGenerator.canGenerate(cls))
+            return;
+        Class<?> topClass = cls;
+        while (topClass.getDeclaringClass() != null) {
+            topClass = topClass.getDeclaringClass();
+        }
+        Path dir = CodeGenerator.getSourceFile(topClass, srcRoots).getParent();
+        Path file = dir.resolve(KryoSerializerGenerator.getSerializerName(cls) + FileUtils.JAVA_EXTENSION);
+        String text = new KryoSerializerGenerator(tab, cls, rowType).generate();
+        FileUtils.writeFile(file, text, o.encoding);
+        manifest.addSerializer(cls, KryoSerializerGenerator.getSerializerClass(cls));
+    }
+
     private JavaClassFile getJavaClass(Path file) {
         String simpleClassName = FileUtils.getJavaClassName(file);
         if (simpleClassName == null)
@@ -308,6 +326,7 @@ public final class Main {
                 Parser parser = pctx.newParser(source, parentClass.getSimpleName(), fullParentName);
                 otherParents.add(parser.parseAll(false));
             }
+            ClassManifest manifest = new ClassManifest();
             for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : runGlobal.generatedIn.entrySet()) {
                 Class<?> cls = entry.getKey();
                 RowTypeInfo rowType = checkCompatibility(cls, entry.getValue());
@@ -317,15 +336,23 @@ public final class Main {
                 if (cp == null)
                     throw new ParseException("Row type " + key + " definition not found");
                 cp.replaceTo = rowType.generateRowTypeBody(tab, tab, cls);
+                generateSerializer(srcRoots, tab, cls, rowType, manifest);
             }
             for (Map.Entry<Class<?>, List<RowTypeInfo>> entry : runGlobal.generatedOut.entrySet()) {
                 Class<?> cls = entry.getKey();
                 RowTypeInfo rowType = checkCompatibility(cls, entry.getValue());
                 String body = rowType.generateRowTypeBody("", tab, cls);
                 CodeGenerator.generateImplOut(srcRoots, o.encoding, cls, body);
+                generateSerializer(srcRoots, tab, cls, rowType, manifest);
             }
 
             // 5. Generate interfaces & write back sources
+            for (Class<?> rowType : runGlobal.generatedIn.keySet()) {
+                manifest.addRowType(rowType);
+            }
+            for (Class<?> rowType : runGlobal.generatedOut.keySet()) {
+                manifest.addRowType(rowType);
+            }
             for (RunResult rr : runResults) {
                 InputFile input = rr.input;
                 ToProcess src = input.src;
@@ -337,7 +364,8 @@ public final class Main {
                         MethodEntry entry = runMethod.entry;
                         if (!entry.publish)
                             continue;
-                        g.addMethod(runMethod.method, entry.javadoc);
+                        g.addMethod(runMethod.method, entry.javadoc, entry.readOnly);
+                        manifest.addMethod(runMethod.method);
                     }
                     ifaceText = g.finish();
                 }
@@ -360,6 +388,9 @@ public final class Main {
                 String newText = parsed.doCutPaste();
                 FileUtils.writeFile(parsed.file, newText, o.encoding);
             }
+            if (o.classManifest != null) {
+                manifest.write(o.classManifest);
+            }
         }
     }
 }
@@ -5,10 +5,12 @@ final class MethodEntry {
     final String javadoc;
     final String methodToCall;
     final boolean publish;
+    final boolean readOnly;
 
-    MethodEntry(String javadoc, String methodToCall, boolean publish) {
+    MethodEntry(String javadoc, String methodToCall, boolean publish, boolean readOnly) {
         this.javadoc = javadoc;
         this.methodToCall = methodToCall;
         this.publish = publish;
+        this.readOnly = readOnly;
     }
 }
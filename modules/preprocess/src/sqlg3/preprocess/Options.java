@@ -36,8 +36,10 @@ public final class Options {
     public final SQLGWarn warn;
     public final String log;
     public final String runtimeMapperClass;
+    public final Path classManifest;
+    public final boolean kryoSerializers;
 
-    Options(Path tmpDir, boolean cleanup, String classpath, ModifiedCheck checkTime, boolean unpreprocess, boolean addInterface, Path srcRoot, Path destRoot, String ifacePack, Charset encoding, int tabSize, String driverClass, String mapperClass, String checkerClass, String url, String user, String pass, SQLGWarn warn, String log, String runtimeMapperClass) {
+    Options(Path tmpDir, boolean cleanup, String classpath, ModifiedCheck checkTime, boolean unpreprocess, boolean addInterface, Path srcRoot, Path destRoot, String ifacePack, Charset encoding, int tabSize, String driverClass, String mapperClass, String checkerClass, String url, String user, String pass, SQLGWarn warn, String log, String runtimeMapperClass, Path classManifest, boolean kryoSerializers) {
         this.tmpDir = tmpDir;
         this.cleanup = cleanup;
         this.classpath = classpath;
@@ -58,6 +60,8 @@ public final class Options {
         this.warn = warn;
         this.log = log;
         this.runtimeMapperClass = runtimeMapperClass;
+        this.classManifest = classManifest;
+        this.kryoSerializers = kryoSerializers;
     }
 
     String getTab() {
@@ -36,6 +36,14 @@ public final class OptionsBuilder {
     public SQLGWarn warn = SQLGWarn.warn;
     public String log = null;
     public String runtimeMapperClass = RuntimeMapperImpl.class.getName();
+    /**
+     * Class manifest file for remote serializers, null to not generate it
+     */
+    public Path classManifest = null;
+    /**
+     * Generate Kryo serializers for row types and register them in class manifest
+     */
+    public boolean kryoSerializers = false;
 
     public Options build() throws ParseException {
         if (driverClass == null) {
@@ -44,6 +52,9 @@ public final class OptionsBuilder {
         if (url == null) {
             throw new ParseException("Property 'url' not set");
         }
+        if (kryoSerializers && classManifest == null) {
+            throw new ParseException("Property 'classManifest' should be set to generate Kryo serializers");
+        }
         Path destRoot;
         if (this.destRoot == null) {
             destRoot = srcRoot;
@@ -52,7 +63,8 @@ public final class OptionsBuilder {
         }
         return new Options(
             tmpDir, cleanup, classpath, checkTime, unpreprocess, addInterface, srcRoot, destRoot, ifacePack,
-            encoding, tabSize, driverClass, mapperClass, checkerClass, url, user, pass, warn, log, runtimeMapperClass
+            encoding, tabSize, driverClass, mapperClass, checkerClass, url, user, pass, warn, log, runtimeMapperClass,
+            classManifest, kryoSerializers
         );
     }
 }
@@ -16,6 +16,7 @@ final class Parser extends ParserBase {
     private static final String KEY_STATEMENT_ANNOTATION = annotationName(PrepareKey.class);
     private static final String CALL_ANNOTATION = annotationName(Call.class);
     private static final String BUSINESS_ANNOTATION = annotationName(Business.class);
+    private static final String READ_ONLY_ANNOTATION = annotationName(ReadOnly.class);
     private static final String CHECK_PARAMS_ANNOTATION = annotationName(CheckParams.class);
     private static final String SQLG_ANNOTATION = annotationName(SQLG.class);
 
@@ -102,7 +103,8 @@ final class Parser extends ParserBase {
             return null;
 
         boolean publish = annotations.contains(BUSINESS_ANNOTATION);
-        return new MethodEntry(javadoc, entryName, publish);
+        boolean readOnly = annotations.contains(READ_ONLY_ANNOTATION);
+        return new MethodEntry(javadoc, entryName, publish, readOnly);
     }
 
     static boolean isWhitespace(int id) {
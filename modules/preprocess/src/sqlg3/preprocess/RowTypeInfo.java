@@ -20,8 +20,16 @@ final class RowTypeInfo {
         this.meta = meta;
     }
 
+    List<ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    Class<?> getColumnClass(ColumnInfo column) {
+        return meta ? MetaColumn.class : column.type;
+    }
+
     private String getColumnType(ColumnInfo column) {
-        return ClassUtils.getClassName(meta ? MetaColumn.class : column.type);
+        return ClassUtils.getClassName(getColumnClass(column));
     }
 
     String generateRowTypeBody(String start, String tab, Class<?> rowType) {
@@ -70,6 +78,15 @@ final class RowTypeInfo {
             StringBuilder getters = new StringBuilder();
             getters.append('\n');
 
+            fields.append(start).append(tab).append("public static final String[] ").append(GlobalContext.ORDER_FIELD).append(" = {");
+            for (int j = 0; j < columns.size(); j++) {
+                if (j > 0) {
+                    fields.append(", ");
+                }
+                fields.append('"').append(columns.get(j).name).append('"');
+            }
+            fields.append("};\n\n");
+
             for (int j = 0; j < columns.size(); j++) {
                 ColumnInfo column = columns.get(j);
                 String type = getColumnType(column);
@@ -102,6 +102,22 @@ public class Preprocess extends Task {
         options.ifacePack = sub;
     }
 
+    /**
+     * Class manifest file for remote serializers; should be on the runtime classpath of both client and server
+     * as <code>sqlg3-classes.txt</code> resource. Not generated if not set.
+     */
+    public void setClassmanifest(File classManifest) {
+        options.classManifest = classManifest.toPath();
+    }
+
+    /**
+     * If true then Kryo serializers are generated for row types (except interfaces) and registered
+     * in class manifest. Requires Kryo on compile classpath of the project.
+     */
+    public void setKryoserializers(boolean kryoSerializers) {
+        options.kryoSerializers = kryoSerializers;
+    }
+
     public static final class JavacOption {
 
         private String arg;
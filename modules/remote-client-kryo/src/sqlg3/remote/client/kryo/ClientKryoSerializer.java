@@ -6,6 +6,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import sqlg3.core.IDBCommon;
 import sqlg3.remote.client.IClientSerializer;
+import sqlg3.remote.common.ChunkedIterator;
 import sqlg3.remote.common.HttpCommand;
 import sqlg3.remote.common.HttpId;
 import sqlg3.remote.common.HttpResult;
@@ -16,9 +17,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ClientKryoSerializer extends BaseKryoSerializer implements IClientSerializer {
 
+    public ClientKryoSerializer(int poolSize, boolean directBuffers) {
+        super(poolSize, directBuffers);
+    }
+
+    public ClientKryoSerializer() {
+    }
+
     @Override
     public HttpResult clientToServer(ReqRespProcessor processor, HttpId id, HttpCommand command,
                                      Class<? extends IDBCommon> iface, Type retType, String method, Class<?>[] paramTypes,
@@ -31,29 +41,71 @@ public class ClientKryoSerializer extends BaseKryoSerializer implements IClientS
 
             @Override
             public void writeToServer(OutputStream stream) throws IOException {
+                Kryo kryo = obtainKryo();
                 try (Output output = writeData(count(stream, debug))) {
-                    Kryo kryo = getKryo();
-
                     kryo.writeObject(output, id);
                     output.writeByte(command.ordinal());
                     kryo.writeObjectOrNull(output, iface, Class.class);
                     kryo.writeObjectOrNull(output, method, String.class);
                     kryo.writeObjectOrNull(output, paramTypes, Class[].class);
                     kryo.writeObjectOrNull(output, params, Object[].class);
+                    if (command == HttpCommand.OPEN) {
+                        output.writeString(getManifestVersion());
+                    }
                 } catch (KryoException ex) {
                     throw new UnrecoverableRemoteException(ex);
+                } finally {
+                    freeKryo(kryo);
                 }
             }
 
             @Override
             public HttpResult readFromServer(InputStream stream) throws IOException {
-                try (Input input = readData(count(stream, debug))) {
-                    Kryo kryo = getKryo();
+                Input input = readData(count(stream, debug));
+                boolean chunked = false;
+                Kryo kryo = obtainKryo();
+                try {
                     Object result = kryo.readClassAndObject(input);
+                    if (result == ChunkedIterator.Marker.CHUNKED) {
+                        chunked = true;
+                        return new HttpResult(new ChunkedIterator<Object>() {
+
+                            @Override
+                            protected Object readObject() {
+                                Kryo chunkKryo = obtainKryo();
+                                try {
+                                    return chunkKryo.readClassAndObject(input);
+                                } catch (KryoException ex) {
+                                    throw new UnrecoverableRemoteException(ex);
+                                } finally {
+                                    freeKryo(chunkKryo);
+                                }
+                            }
+
+                            @Override
+                            protected void closeInput() {
+                                input.close();
+                            }
+                        }, null);
+                    } else if (result == ChunkedIterator.Marker.CHUNKED_LIST) {
+                        List<Object> list = new ArrayList<>();
+                        while (true) {
+                            List<?> chunk = (List<?>) kryo.readClassAndObject(input);
+                            if (chunk == null)
+                                break;
+                            list.addAll(chunk);
+                        }
+                        result = list;
+                    }
                     Throwable error = (Throwable) kryo.readClassAndObject(input);
                     return new HttpResult(result, error);
                 } catch (KryoException ex) {
                     throw new UnrecoverableRemoteException(ex);
+                } finally {
+                    freeKryo(kryo);
+                    if (!chunked) {
+                        input.close();
+                    }
                 }
             }
         });
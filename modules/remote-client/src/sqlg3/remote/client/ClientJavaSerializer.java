@@ -5,6 +5,8 @@ import sqlg3.remote.common.*;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ClientJavaSerializer extends BaseJavaSerializer implements IClientSerializer {
 
@@ -28,12 +30,44 @@ public final class ClientJavaSerializer extends BaseJavaSerializer implements IC
             }
 
             public HttpResult readFromServer(InputStream stream) throws IOException {
-                try (ObjectInputStream ois = readData(count(stream, debug))) {
+                ObjectInputStream ois = readData(count(stream, debug));
+                boolean chunked = false;
+                try {
                     Object result = ois.readObject();
+                    if (result == ChunkedIterator.Marker.CHUNKED) {
+                        chunked = true;
+                        return new HttpResult(new ChunkedIterator<Object>() {
+
+                            protected Object readObject() throws IOException {
+                                try {
+                                    return ois.readObject();
+                                } catch (ClassNotFoundException | InvalidClassException ex) {
+                                    throw new UnrecoverableRemoteException(ex);
+                                }
+                            }
+
+                            protected void closeInput() throws IOException {
+                                ois.close();
+                            }
+                        }, null);
+                    } else if (result == ChunkedIterator.Marker.CHUNKED_LIST) {
+                        List<Object> list = new ArrayList<>();
+                        while (true) {
+                            List<?> chunk = (List<?>) ois.readObject();
+                            if (chunk == null)
+                                break;
+                            list.addAll(chunk);
+                        }
+                        result = list;
+                    }
                     Throwable error = (Throwable) ois.readObject();
                     return new HttpResult(result, error);
                 } catch (ClassNotFoundException | InvalidClassException ex) {
                     throw new UnrecoverableRemoteException(ex);
+                } finally {
+                    if (!chunked) {
+                        ois.close();
+                    }
                 }
             }
         });
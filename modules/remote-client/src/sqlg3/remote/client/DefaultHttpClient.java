@@ -1,5 +1,6 @@
 package sqlg3.remote.client;
 
+import sqlg3.remote.common.ChunkedIterator;
 import sqlg3.remote.common.HttpResult;
 
 import java.io.IOException;
@@ -13,6 +14,10 @@ public class DefaultHttpClient implements IHttpClient, IClientSerializer.ReqResp
 
     private final HttpURLConnection conn;
     private boolean connected = false;
+    /**
+     * true if response is still being read by {@link ChunkedIterator}, which disconnects on close
+     */
+    private boolean chunked = false;
 
     public DefaultHttpClient(HttpURLConnection conn) {
         this.conn = conn;
@@ -38,13 +43,28 @@ public class DefaultHttpClient implements IHttpClient, IClientSerializer.ReqResp
         try (OutputStream os = conn.getOutputStream()) {
             consumer.writeToServer(os);
         }
-        try (InputStream is = conn.getInputStream()) {
-            return consumer.readFromServer(is);
+        InputStream is = conn.getInputStream();
+        HttpResult result;
+        try {
+            result = consumer.readFromServer(is);
+        } catch (IOException | RuntimeException ex) {
+            is.close();
+            throw ex;
         }
+        if (result.result instanceof ChunkedIterator) {
+            chunked = true;
+            ((ChunkedIterator<?>) result.result).onClose(() -> {
+                is.close();
+                conn.disconnect();
+            });
+        } else {
+            is.close();
+        }
+        return result;
     }
 
     public void close() throws IOException {
-        if (connected) {
+        if (connected && !chunked) {
             conn.disconnect();
         }
     }
@@ -10,20 +10,22 @@ final class HttpDBInterface implements IRemoteDBInterface {
 
     private final HttpRootObject rootObject;
     private final HttpDBInterfaceInfo info;
+    private final MethodIds methodIds;
 
     HttpDBInterface(HttpRootObject rootObject, HttpDBInterfaceInfo info) {
         this.rootObject = rootObject;
         this.info = info;
+        this.methodIds = new MethodIds(rootObject, info.id);
     }
 
     public ISimpleTransaction getSimpleTransaction() {
-        return new HttpSimpleTransaction(rootObject, info.id, HttpCommand.INVOKE);
+        return new HttpSimpleTransaction(rootObject, info.id, HttpCommand.INVOKE, methodIds);
     }
 
     public ITransaction getTransaction() throws SQLException {
         try {
             HttpId transactionId = rootObject.httpInvoke(HttpId.class, HttpCommand.GET_TRANSACTION, info.id);
-            return new HttpTransaction(rootObject, transactionId);
+            return new HttpTransaction(rootObject, transactionId, methodIds);
         } catch (SQLException | RuntimeException ex) {
             throw ex;
         } catch (Throwable ex) {
@@ -26,26 +26,28 @@ final class HttpRootObject {
         return (T) httpInvoke(retType, command, id, null, null, null, params);
     }
 
-    Object httpInvoke(Type retType, HttpCommand command, HttpId id, Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes, Object[] params) throws Throwable {
-        Object result;
-        Throwable error;
-        try {
-            try (IHttpClient conn = clientFactory.getClient()) {
-                IClientSerializer.ReqRespProcessor processor = conn.getProcessor();
-                HttpResult httpResult = serializer.clientToServer(processor, id, command, iface, retType, method, paramTypes, params);
-                result = httpResult.result;
-                error = httpResult.error;
-            }
+    /**
+     * Sends request and returns server response without throwing error returned by server.
+     * Transport errors are thrown as {@link RemoteException}.
+     */
+    HttpResult httpCall(Type retType, HttpCommand command, HttpId id, Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes, Object[] params) {
+        try (IHttpClient conn = clientFactory.getClient()) {
+            IClientSerializer.ReqRespProcessor processor = conn.getProcessor();
+            return serializer.clientToServer(processor, id, command, iface, retType, method, paramTypes, params);
         } catch (RuntimeException ex) {
             throw ex;
         } catch (Exception ex) {
             throw new RemoteException(ex);
         }
-        if (error != null) {
-            serverException(error);
+    }
+
+    Object httpInvoke(Type retType, HttpCommand command, HttpId id, Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes, Object[] params) throws Throwable {
+        HttpResult httpResult = httpCall(retType, command, id, iface, method, paramTypes, params);
+        if (httpResult.error != null) {
+            serverException(httpResult.error);
             return null;
         } else {
-            return result;
+            return httpResult.result;
         }
     }
 
@@ -1,29 +1,95 @@
 package sqlg3.remote.client;
 
+import sqlg3.core.CallBatch;
 import sqlg3.core.IDBCommon;
 import sqlg3.core.ISimpleTransaction;
+import sqlg3.remote.common.ChunkedIterator;
 import sqlg3.remote.common.HttpCommand;
 import sqlg3.remote.common.HttpId;
+import sqlg3.remote.common.RemoteException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-class HttpSimpleTransaction implements ISimpleTransaction {
+class HttpSimpleTransaction implements ISimpleTransaction, CallBatch.Executor {
 
     protected final HttpRootObject rootObject;
     protected final HttpId id;
     private final HttpCommand command;
+    private final MethodIds methodIds;
 
-    HttpSimpleTransaction(HttpRootObject rootObject, HttpId id, HttpCommand command) {
+    HttpSimpleTransaction(HttpRootObject rootObject, HttpId id, HttpCommand command, MethodIds methodIds) {
         this.rootObject = rootObject;
         this.id = id;
         this.command = command;
+        this.methodIds = methodIds;
+    }
+
+    private Object invoke(Class<? extends IDBCommon> iface, Method method, Object[] args) throws Throwable {
+        Type retType = method.getGenericReturnType();
+        if (command == HttpCommand.INVOKE) {
+            int methodId = methodIds.getMethodId(iface, method);
+            if (methodId >= 0) {
+                int count = args == null ? 0 : args.length;
+                Object[] params = new Object[count + 1];
+                params[0] = methodId;
+                if (count > 0) {
+                    System.arraycopy(args, 0, params, 1, count);
+                }
+                return rootObject.httpInvoke(retType, HttpCommand.INVOKE_BY_ID, id, null, null, null, params);
+            }
+        }
+        return rootObject.httpInvoke(retType, command, id, iface, method.getName(), method.getParameterTypes(), args);
     }
 
     public final <T extends IDBCommon> T getInterface(Class<T> iface) {
         return iface.cast(Proxy.newProxyInstance(
             iface.getClassLoader(),
             new Class<?>[] {iface},
-            (proxy, method, args) -> rootObject.httpInvoke(method.getGenericReturnType(), command, id, iface, method.getName(), method.getParameterTypes(), args)
+            (proxy, method, args) -> {
+                Object result = invoke(iface, method, args);
+                if (result instanceof ChunkedIterator && Stream.class.equals(method.getReturnType())) {
+                    return toStream((ChunkedIterator<?>) result);
+                } else {
+                    return result;
+                }
+            }
         ));
     }
+
+    private static Stream<?> toStream(ChunkedIterator<?> iterator) {
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(() -> {
+                try {
+                    iterator.close();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+    }
+
+    /**
+     * Sends all calls in one request
+     */
+    @SuppressWarnings("unchecked")
+    public final List<CallBatch.Result> executeBatch(List<CallBatch.Call> calls) throws SQLException {
+        try {
+            return rootObject.httpInvoke(List.class, HttpCommand.BATCH, id, new ArrayList<>(calls));
+        } catch (SQLException | RuntimeException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RemoteException(ex);
+        }
+    }
 }
@@ -9,8 +9,8 @@ import java.sql.SQLException;
 
 final class HttpTransaction extends HttpSimpleTransaction implements ITransaction {
 
-    HttpTransaction(HttpRootObject rootObject, HttpId id) {
-        super(rootObject, id, HttpCommand.INVOKE);
+    HttpTransaction(HttpRootObject rootObject, HttpId id, MethodIds methodIds) {
+        super(rootObject, id, HttpCommand.INVOKE, methodIds);
     }
 
     public void rollback() throws SQLException {
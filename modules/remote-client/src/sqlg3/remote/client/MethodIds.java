@@ -0,0 +1,68 @@
+package sqlg3.remote.client;
+
+import sqlg3.core.IDBCommon;
+import sqlg3.remote.common.HttpCommand;
+import sqlg3.remote.common.HttpId;
+import sqlg3.remote.common.HttpResult;
+import sqlg3.remote.common.MethodTable;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Method IDs negotiated with server for the session (see {@link MethodTable}).
+ */
+final class MethodIds {
+
+    private final HttpRootObject rootObject;
+    private final HttpId sessionId;
+    /**
+     * Method IDs of interface, empty map if server does not support method IDs or its interface differs from the client one
+     */
+    private final Map<Class<?>, Map<Method, Integer>> tables = new ConcurrentHashMap<>();
+
+    MethodIds(HttpRootObject rootObject, HttpId sessionId) {
+        this.rootObject = rootObject;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Transport errors are thrown and negotiation is repeated on the next call, only server answer
+     * is remembered for the session.
+     */
+    private Map<Method, Integer> negotiate(Class<? extends IDBCommon> iface) {
+        HttpResult result = rootObject.httpCall(
+            MethodTable.class, HttpCommand.GET_METHOD_TABLE, sessionId, null, null, null, new Object[] {iface}
+        );
+        if (result.error != null || !(result.result instanceof MethodTable))
+            return Collections.emptyMap();
+        MethodTable table = (MethodTable) result.result;
+        if (table.interfaceId > 0xFFFF || table.signatures.length > 0x10000 || !table.matches(iface))
+            return Collections.emptyMap();
+        Method[] methods = MethodTable.getMethods(iface);
+        Map<Method, Integer> ids = new HashMap<>(methods.length * 2);
+        for (int i = 0; i < methods.length; i++) {
+            ids.put(methods[i], MethodTable.getMethodId(table.interfaceId, i));
+        }
+        return ids;
+    }
+
+    /**
+     * @return method ID or -1 if method should be called by name
+     */
+    int getMethodId(Class<? extends IDBCommon> iface, Method method) {
+        Map<Method, Integer> ids = tables.get(iface);
+        if (ids == null) {
+            Map<Method, Integer> newIds = negotiate(iface);
+            ids = tables.putIfAbsent(iface, newIds);
+            if (ids == null) {
+                ids = newIds;
+            }
+        }
+        Integer methodId = ids.get(method);
+        return methodId == null ? -1 : methodId.intValue();
+    }
+}
@@ -0,0 +1,456 @@
+package sqlg3.remote.client;
+
+import sqlg3.remote.common.ChunkedIterator;
+import sqlg3.remote.common.HttpResult;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * {@link IHttpClientFactory} with a pool of persistent (keep-alive) HTTP/1.1 connections.
+ * Unlike {@link DefaultHttpClient} it does not open new TCP (and TLS) connection for each remote call.
+ * Request and response buffers are allocated once per connection and reused.
+ * <p>
+ * Connections idle longer than idle timeout are closed and not reused, so idle timeout should be
+ * less than keep-alive timeout of the server. Idle connection is checked before reuse, and if it was closed
+ * by server, new connection is opened. Request is never sent again after it was written: even if connection
+ * is closed without any response bytes, the call could be already executed by server.
+ * <p>
+ * For HTTPS server host name is verified against its certificate, as by {@link javax.net.ssl.HttpsURLConnection}.
+ */
+public final class PooledHttpClientFactory implements IHttpClientFactory, Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final URL url;
+    private final Proxy proxy;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int poolSize;
+    private final long idleTimeout;
+
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private boolean closed = false;
+
+    /**
+     * @param connectTimeout connect timeout in milliseconds
+     * @param readTimeout socket read timeout in milliseconds, 0 for no timeout
+     * @param poolSize maximum number of idle connections kept open
+     * @param idleTimeout maximum time in milliseconds idle connection can be reused
+     */
+    public PooledHttpClientFactory(URL url, Proxy proxy, int connectTimeout, int readTimeout, int poolSize, long idleTimeout) {
+        String protocol = url.getProtocol().toLowerCase(Locale.ROOT);
+        if (!"http".equals(protocol) && !"https".equals(protocol))
+            throw new IllegalArgumentException("Unsupported protocol: " + url.getProtocol());
+        if (proxy != null && proxy.type() == Proxy.Type.HTTP && "https".equals(protocol))
+            throw new IllegalArgumentException("HTTPS through HTTP proxy is not supported");
+        this.url = url;
+        this.proxy = proxy == null ? Proxy.NO_PROXY : proxy;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.poolSize = poolSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public PooledHttpClientFactory(URL url, Proxy proxy) {
+        this(url, proxy, 3000, 0, 8, 30000);
+    }
+
+    private final class PooledConnection {
+
+        final Socket socket;
+        final BufferedInputStream in;
+        final OutputStream out;
+        final RequestBuffer request = new RequestBuffer();
+        final byte[] drainBuffer = new byte[BUFFER_SIZE];
+        long lastUsed;
+
+        PooledConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Request body is buffered to send it with Content-Length.
+     */
+    private static final class RequestBuffer extends ByteArrayOutputStream {
+
+        RequestBuffer() {
+            super(BUFFER_SIZE);
+        }
+
+        void writeTo(OutputStream os, byte[] header) throws IOException {
+            os.write(header);
+            os.write(buf, 0, count);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        InetSocketAddress address;
+        Socket socket;
+        if (proxy.type() == Proxy.Type.HTTP) {
+            address = (InetSocketAddress) proxy.address();
+            if (address.isUnresolved()) {
+                address = new InetSocketAddress(address.getHostName(), address.getPort());
+            }
+            socket = new Socket();
+        } else {
+            address = new InetSocketAddress(url.getHost(), getPort());
+            socket = new Socket(proxy);
+        }
+        try {
+            socket.connect(address, connectTimeout);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(readTimeout);
+            if (isHttps()) {
+                SSLSocket ssl = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(
+                    socket, url.getHost(), getPort(), true
+                );
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                ssl.startHandshake();
+                return ssl;
+            }
+            return socket;
+        } catch (IOException | RuntimeException ex) {
+            try {
+                socket.close();
+            } catch (IOException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            throw ex;
+        }
+    }
+
+    private boolean isHttps() {
+        return "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    private int getPort() {
+        int port = url.getPort();
+        return port >= 0 ? port : url.getDefaultPort();
+    }
+
+    /**
+     * Checks if idle connection was closed by server (or has unexpected data to read), without writing anything.
+     */
+    private boolean isStale(PooledConnection conn) {
+        try {
+            if (conn.in.available() > 0)
+                return true;
+            conn.socket.setSoTimeout(1);
+            try {
+                // either end of stream or unexpected data: connection cannot be reused
+                conn.in.read();
+                return true;
+            } finally {
+                conn.socket.setSoTimeout(readTimeout);
+            }
+        } catch (SocketTimeoutException ex) {
+            // nothing to read, connection is alive
+            return false;
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledConnection conn;
+            synchronized (idle) {
+                conn = idle.pollFirst();
+            }
+            if (conn == null)
+                return null;
+            if (now - conn.lastUsed < idleTimeout && !conn.socket.isClosed() && !isStale(conn))
+                return conn;
+            conn.close();
+        }
+    }
+
+    private void release(PooledConnection conn) {
+        conn.lastUsed = System.currentTimeMillis();
+        synchronized (idle) {
+            if (!closed && idle.size() < poolSize) {
+                idle.addFirst(conn);
+                return;
+            }
+        }
+        conn.close();
+    }
+
+    private byte[] requestHeader(int contentLength) {
+        String target;
+        if (proxy.type() == Proxy.Type.HTTP) {
+            target = url.toExternalForm();
+        } else {
+            target = url.getFile().isEmpty() ? "/" : url.getFile();
+        }
+        int port = url.getPort();
+        String host = port >= 0 && port != url.getDefaultPort() ? url.getHost() + ":" + port : url.getHost();
+        String header =
+            "POST " + target + " HTTP/1.1\r\n" +
+            "Host: " + host + "\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Length: " + contentLength + "\r\n" +
+            "Connection: keep-alive\r\n" +
+            "\r\n";
+        return header.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                if (buf.length() == 0)
+                    return null;
+                throw new EOFException("Unexpected end of HTTP response");
+            }
+            if (c == '\n')
+                break;
+            if (c != '\r') {
+                buf.append((char) c);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Response body stream. Closing it does not close the socket, remaining data is skipped before connection reuse.
+     */
+    private static final class BodyInputStream extends InputStream {
+
+        private final InputStream in;
+        private final boolean chunked;
+        /**
+         * Remaining bytes in content (or current chunk if chunked), -1 if content is read until end of stream
+         */
+        private long remaining;
+        private boolean eof = false;
+
+        BodyInputStream(InputStream in, boolean chunked, long length) {
+            this.in = in;
+            this.chunked = chunked;
+            this.remaining = chunked ? 0 : length;
+            if (!chunked && length == 0) {
+                eof = true;
+            }
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (remaining > 0)
+                return true;
+            if (!chunked)
+                return false;
+            String line = readLine(in);
+            if (line == null)
+                throw new EOFException("Unexpected end of chunked HTTP response");
+            if (line.isEmpty()) {
+                // CRLF after previous chunk data
+                line = readLine(in);
+                if (line == null)
+                    throw new EOFException("Unexpected end of chunked HTTP response");
+            }
+            int semicolon = line.indexOf(';');
+            String size = (semicolon >= 0 ? line.substring(0, semicolon) : line).trim();
+            try {
+                remaining = Long.parseLong(size, 16);
+            } catch (NumberFormatException ex) {
+                throw new IOException("Invalid chunk size: " + line);
+            }
+            if (remaining == 0) {
+                // trailers
+                while (true) {
+                    String trailer = readLine(in);
+                    if (trailer == null || trailer.isEmpty())
+                        break;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof)
+                return -1;
+            if (len == 0)
+                return 0;
+            if (remaining < 0) {
+                int read = in.read(b, off, len);
+                if (read < 0) {
+                    eof = true;
+                }
+                return read;
+            }
+            if (!nextChunk()) {
+                eof = true;
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read < 0)
+                throw new EOFException("Unexpected end of HTTP response");
+            remaining -= read;
+            if (remaining == 0 && !chunked) {
+                eof = true;
+            }
+            return read;
+        }
+
+        public int available() throws IOException {
+            if (eof)
+                return 0;
+            int available = in.available();
+            return remaining < 0 ? available : (int) Math.min(available, remaining);
+        }
+
+        /**
+         * @return true if response was read completely and connection can be reused
+         */
+        boolean drain(byte[] buffer) throws IOException {
+            if (remaining < 0)
+                return false;
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // skip
+            }
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+    private final class Client implements IHttpClient, IClientSerializer.ReqRespProcessor {
+
+        public IClientSerializer.ReqRespProcessor getProcessor() {
+            return this;
+        }
+
+        private HttpResult send(PooledConnection conn, byte[] header, IClientSerializer.ReqRespConsumer consumer) throws IOException {
+            conn.request.writeTo(conn.out, header);
+            conn.out.flush();
+            String status = readLine(conn.in);
+            if (status == null)
+                throw new EOFException("Server closed connection without response");
+            String[] parts = status.split(" ", 3);
+            int code;
+            try {
+                code = parts.length >= 2 ? Integer.parseInt(parts[1]) : -1;
+            } catch (NumberFormatException ex) {
+                code = -1;
+            }
+            long length = -1;
+            boolean chunked = false;
+            boolean keepAlive = status.startsWith("HTTP/1.1");
+            while (true) {
+                String line = readLine(conn.in);
+                if (line == null || line.isEmpty())
+                    break;
+                int colon = line.indexOf(':');
+                if (colon < 0)
+                    continue;
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if ("content-length".equals(name)) {
+                    length = Long.parseLong(value);
+                } else if ("transfer-encoding".equals(name)) {
+                    chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                } else if ("connection".equals(name)) {
+                    String connection = value.toLowerCase(Locale.ROOT);
+                    if (connection.contains("close")) {
+                        keepAlive = false;
+                    } else if (connection.contains("keep-alive")) {
+                        keepAlive = true;
+                    }
+                }
+            }
+            if (code != HttpURLConnection.HTTP_OK)
+                throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+            BodyInputStream body = new BodyInputStream(conn.in, chunked, chunked ? 0 : length);
+            HttpResult result = consumer.readFromServer(body);
+            if (result.result instanceof ChunkedIterator) {
+                ChunkedIterator<?> iterator = (ChunkedIterator<?>) result.result;
+                boolean reuse = keepAlive;
+                iterator.onClose(() -> {
+                    // if iterator is closed before the end, rest of response is not worth reading
+                    if (reuse && iterator.isFinished() && body.drain(conn.drainBuffer)) {
+                        release(conn);
+                    } else {
+                        conn.close();
+                    }
+                });
+            } else if (body.drain(conn.drainBuffer) && keepAlive) {
+                release(conn);
+            } else {
+                conn.close();
+            }
+            return result;
+        }
+
+        public HttpResult process(IClientSerializer.ReqRespConsumer consumer) throws IOException {
+            PooledConnection conn = takeIdle();
+            if (conn == null) {
+                conn = new PooledConnection(connect());
+            }
+            try {
+                conn.request.reset();
+                consumer.writeToServer(conn.request);
+            } catch (IOException | RuntimeException ex) {
+                release(conn);
+                throw ex;
+            }
+            byte[] header = requestHeader(conn.request.size());
+            try {
+                return send(conn, header, consumer);
+            } catch (IOException | RuntimeException ex) {
+                conn.close();
+                throw ex;
+            }
+        }
+
+        public void close() {
+        }
+    }
+
+    public IHttpClient getClient() {
+        return new Client();
+    }
+
+    /**
+     * Closes all idle connections. Connections currently in use are closed after the call.
+     */
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (PooledConnection conn : idle) {
+                conn.close();
+            }
+            idle.clear();
+        }
+    }
+}
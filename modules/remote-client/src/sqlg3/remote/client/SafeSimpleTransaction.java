@@ -1,12 +1,14 @@
 package sqlg3.remote.client;
 
+import sqlg3.core.CallBatch;
 import sqlg3.core.IDBCommon;
 import sqlg3.core.ISimpleTransaction;
 import sqlg3.remote.common.RemoteException;
 
 import java.sql.SQLException;
+import java.util.List;
 
-final class SafeSimpleTransaction implements ISimpleTransaction {
+final class SafeSimpleTransaction implements ISimpleTransaction, CallBatch.Executor {
 
     private ISimpleTransaction trans = null;
     private int currentCounter = -1;
@@ -41,4 +43,13 @@ final class SafeSimpleTransaction implements ISimpleTransaction {
     <T extends IDBCommon> T createInterface(Class<T> iface) {
         return getTrans().getInterface(iface);
     }
+
+    public List<CallBatch.Result> executeBatch(List<CallBatch.Call> calls) throws SQLException {
+        ISimpleTransaction trans = getTrans();
+        if (trans instanceof CallBatch.Executor) {
+            return ((CallBatch.Executor) trans).executeBatch(calls);
+        } else {
+            return CallBatch.executeCalls(trans, calls);
+        }
+    }
 }
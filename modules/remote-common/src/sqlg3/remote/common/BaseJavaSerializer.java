@@ -1,16 +1,65 @@
 package sqlg3.remote.common;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Java serialization of remote calls. {@link InputStream} and {@link Reader} values (parameters, results
+ * or their fields) are streamed (see {@link StreamedLob}), lists of row types are written in columnar format
+ * (see {@link ColumnarRows}).
+ */
 public abstract class BaseJavaSerializer extends BaseSerializer<ObjectInputStream, ObjectOutputStream> {
 
+    private static final class LobOutputStream extends ObjectOutputStream {
+
+        private final boolean columnar;
+
+        LobOutputStream(OutputStream out, boolean columnar) throws IOException {
+            super(out);
+            this.columnar = columnar;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof InputStream) {
+                return new StreamedLob((InputStream) obj);
+            } else if (obj instanceof Reader) {
+                return new StreamedLob((Reader) obj);
+            } else if (columnar && obj != null && obj.getClass() == ArrayList.class) {
+                ColumnarRows rows = ColumnarRows.encode((List<?>) obj);
+                return rows == null ? obj : rows;
+            } else {
+                return obj;
+            }
+        }
+    }
+
+    private static final class LobInputStream extends ObjectInputStream {
+
+        LobInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof StreamedLob) {
+                return ((StreamedLob) obj).toValue();
+            } else {
+                return obj;
+            }
+        }
+    }
+
     @Override
     protected ObjectOutputStream write(OutputStream os) throws IOException {
-        return new ObjectOutputStream(os);
+        return new LobOutputStream(os, columnar);
     }
 
     @Override
     protected ObjectInputStream read(InputStream is) throws IOException {
-        return new ObjectInputStream(is);
+        return new LobInputStream(is);
     }
 }
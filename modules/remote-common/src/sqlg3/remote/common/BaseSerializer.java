@@ -6,10 +6,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 public abstract class BaseSerializer<I, O> {
 
@@ -21,15 +25,34 @@ public abstract class BaseSerializer<I, O> {
     public LongConsumer onRead;
     public LongConsumer onWrite;
     public boolean zip = true;
+    /**
+     * Compression level from 0 to 9 (see {@link Deflater#setLevel})
+     */
+    public int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    /**
+     * Messages shorter than this number of bytes are sent uncompressed
+     */
+    public int compressionThreshold = 1024;
+    public final CompressionStats compressionStats = new CompressionStats();
+    private final ZipPool zipPool = new ZipPool(32);
+    /**
+     * Number of elements in one chunk of {@link Iterator}, {@link Stream} or {@link List} result
+     */
+    public int chunkSize = 1000;
+    /**
+     * If true, lists of row types are written in columnar format (see {@link ColumnarRows}).
+     * Columnar data is always understood by the reading side, so this option can be set independently on client and server.
+     */
+    public boolean columnar = true;
 
     protected O writeData(OutputStream os) throws IOException {
-        return write(zip ? new DeflaterOutputStream(os) : os);
+        return write(zip ? zipPool.compress(os, compressionLevel, compressionThreshold, compressionStats) : os);
     }
 
     protected abstract O write(OutputStream os) throws IOException;
 
     protected I readData(InputStream is) throws IOException {
-        return read(zip ? new InflaterInputStream(is) : is);
+        return read(zip ? zipPool.decompress(is, compressionStats) : is);
     }
 
     protected abstract I read(InputStream is) throws IOException;
@@ -63,4 +86,87 @@ public abstract class BaseSerializer<I, O> {
             }
         }
     }
+
+    protected interface ObjectWriter {
+
+        void write(Object obj) throws IOException;
+    }
+
+    /**
+     * Returns true if remote method result should be sent in chunks.
+     * Results of type {@link Iterator} or {@link Stream} are always chunked, lists - only if they are longer than
+     * {@link #chunkSize}.
+     * <p>
+     * Result is written after the DAO call has ended and its statements are closed, so server always holds
+     * the whole result in memory (Stream/Iterator results are read to the end by the call itself).
+     * Chunking bounds only the size of each serialized piece; client holds one chunk at a time
+     * for Stream/Iterator results, but rebuilds list results as a whole.
+     */
+    protected boolean isChunked(Object result) {
+        if (result instanceof List) {
+            return ((List<?>) result).size() > chunkSize;
+        }
+        return result instanceof Iterator || result instanceof Stream;
+    }
+
+    /**
+     * Writes result in chunks of {@link #chunkSize} elements: {@link ChunkedIterator.Marker#CHUNKED}, then chunks (as Object[]),
+     * then null and error thrown while iterating result (or null).
+     * List is written as {@link ChunkedIterator.Marker#CHUNKED_LIST}, then chunks (as ArrayList, so lists of row types
+     * are still written in columnar format), then null and error (or null).
+     */
+    protected void writeChunked(Object result, ObjectWriter writer) throws IOException {
+        if (result instanceof List) {
+            writeChunkedList((List<?>) result, writer);
+            return;
+        }
+        writer.write(ChunkedIterator.Marker.CHUNKED);
+        Throwable error = null;
+        Stream<?> stream = result instanceof Stream ? (Stream<?>) result : null;
+        try {
+            Iterator<?> iterator = stream != null ? stream.iterator() : (Iterator<?>) result;
+            Object[] chunk = new Object[chunkSize];
+            int count = 0;
+            while (true) {
+                boolean hasNext;
+                try {
+                    hasNext = iterator.hasNext();
+                    if (hasNext) {
+                        chunk[count++] = iterator.next();
+                    }
+                } catch (RuntimeException ex) {
+                    error = ex;
+                    hasNext = false;
+                }
+                if (count > 0 && (count >= chunk.length || !hasNext)) {
+                    writer.write(count == chunk.length ? chunk : Arrays.copyOf(chunk, count));
+                    Arrays.fill(chunk, 0, count, null);
+                    count = 0;
+                }
+                if (!hasNext)
+                    break;
+            }
+        } finally {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+        writer.write(null);
+        writer.write(error);
+    }
+
+    private void writeChunkedList(List<?> list, ObjectWriter writer) throws IOException {
+        writer.write(ChunkedIterator.Marker.CHUNKED_LIST);
+        Throwable error = null;
+        try {
+            int size = list.size();
+            for (int from = 0; from < size; from += chunkSize) {
+                writer.write(new ArrayList<>(list.subList(from, Math.min(size, from + chunkSize))));
+            }
+        } catch (RuntimeException ex) {
+            error = ex;
+        }
+        writer.write(null);
+        writer.write(error);
+    }
 }
@@ -0,0 +1,114 @@
+package sqlg3.remote.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Client side of remote result returned in chunks (see {@link BaseSerializer#writeChunked}).
+ * Chunks are read from the response only when previous chunk is consumed, so client holds only
+ * one chunk in memory.
+ * <p>
+ * Server does not stream rows from the database: DAO call (and its statements) ends before the response
+ * is written, so Stream/Iterator returned by DAO method is read to the end inside the call, and the whole
+ * result is held in server memory while it is sent. Lazy streams over database cursors (like keyset pages)
+ * cannot outlive the call; they are read completely, and their errors fail the call before the response starts.
+ * <p>
+ * Response stays open until all elements are read or iterator is closed, so iterator should be closed
+ * if it is not read to the end.
+ */
+public abstract class ChunkedIterator<T> implements Iterator<T>, Closeable {
+
+    /**
+     * Written by server instead of the result to indicate that chunks follow
+     */
+    public enum Marker {
+        /**
+         * Result is {@link java.util.Iterator} or {@link java.util.stream.Stream}, client reads it with {@link ChunkedIterator}
+         */
+        CHUNKED,
+        /**
+         * Result is {@link java.util.List}, client reads all chunks (as lists) and returns them as one {@link java.util.ArrayList}
+         */
+        CHUNKED_LIST
+    }
+
+    private Object[] chunk = null;
+    private int index = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+    private Closeable onClose = null;
+
+    /**
+     * Reads next object from response: chunk (Object[]), null at the end, then error (or null).
+     */
+    protected abstract Object readObject() throws IOException;
+
+    protected abstract void closeInput() throws IOException;
+
+    /**
+     * Sets action to release HTTP connection after response is read or iterator is closed.
+     */
+    public void onClose(Closeable onClose) {
+        this.onClose = onClose;
+    }
+
+    /**
+     * @return true if response was read to the end
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean hasNext() {
+        while (!finished && (chunk == null || index >= chunk.length)) {
+            if (closed)
+                throw new IllegalStateException("Iterator is closed");
+            try {
+                Object obj = readObject();
+                if (obj == null) {
+                    finished = true;
+                    Throwable error = (Throwable) readObject();
+                    close();
+                    if (error != null)
+                        throw new RemoteException(error);
+                } else {
+                    chunk = (Object[]) obj;
+                    index = 0;
+                }
+            } catch (IOException ex) {
+                try {
+                    close();
+                } catch (IOException ex2) {
+                    ex.addSuppressed(ex2);
+                }
+                throw new RemoteException(ex);
+            }
+        }
+        return !finished;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        T element = (T) chunk[index];
+        chunk[index++] = null;
+        return element;
+    }
+
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        chunk = null;
+        try {
+            closeInput();
+        } finally {
+            if (onClose != null) {
+                onClose.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,661 @@
+package sqlg3.remote.common;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Columnar encoding of list of row type instances. Only known row types are encoded: records, and classes
+ * generated by preprocessor (extending {@link Object}, with final fields set by the only public constructor
+ * in the order given by static <code>ORDER</code> field). Rows are immutable values, so decoded rows are
+ * equal to the original ones but not identical: rows repeated in the list or referenced from other parts of the
+ * object graph become separate instances.
+ * Instead of writing rows one by one field values are transposed into columns:
+ * <ul>
+ * <li>each nullable column starts with bitmap of null values, only non-null values are written;</li>
+ * <li>integers, dates and timestamps are written as differences with the previous value in zigzag varint format;</li>
+ * <li>strings are dictionary-encoded: repeated value is written as index of its first occurrence;</li>
+ * <li>decimals are written as scale and bytes of unscaled value;</li>
+ * <li>values of other types are collected in {@link #values} array and written by the serializer as usual.</li>
+ * </ul>
+ * Encoded rows are read as {@link ArrayList} of rows equal to the original ones.
+ * Used by {@link BaseJavaSerializer} (as replacement object) and by Kryo serializers. Kryo serializers do not use
+ * columnar format for row types with serializers generated by preprocessor, since they are faster than reflection.
+ */
+public final class ColumnarRows implements Serializable {
+
+    /**
+     * Lists shorter than that are not encoded
+     */
+    public static final int MIN_ROWS = 2;
+
+    /**
+     * Static field of generated row type classes with field names in constructor order
+     */
+    private static final String ORDER_FIELD = "ORDER";
+    private static final int FORMAT = 1;
+    private static final int MAX_DICTIONARY = 4096;
+
+    private static final byte K_BOOLEAN = 1;
+    private static final byte K_INTEGER = 2;
+    private static final byte K_CHAR = 3;
+    private static final byte K_FLOAT = 4;
+    private static final byte K_DOUBLE = 5;
+    private static final byte K_STRING = 6;
+    private static final byte K_DATE = 7;
+    private static final byte K_TIMESTAMP = 8;
+    private static final byte K_LOCAL_DATE = 9;
+    private static final byte K_LOCAL_DATE_TIME = 10;
+    private static final byte K_DECIMAL = 11;
+    private static final byte K_OBJECT = 12;
+
+    private static final class Layout {
+
+        final Constructor<?> constructor;
+        final Field[] fields;
+        final String[] names;
+        final byte[] kinds;
+        final boolean[] nullable;
+
+        Layout(Constructor<?> constructor, Field[] fields, String[] names) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.names = names;
+            this.kinds = new byte[fields.length];
+            this.nullable = new boolean[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                Class<?> type = fields[i].getType();
+                kinds[i] = getKind(type);
+                nullable[i] = !type.isPrimitive();
+            }
+        }
+    }
+
+    private static final Layout NONE = new Layout(null, new Field[0], new String[0]);
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            Layout layout = createLayout(type);
+            return layout == null ? NONE : layout;
+        }
+    };
+
+    public final Class<?> rowType;
+    public final int size;
+    /**
+     * Encoded columns
+     */
+    public final byte[] data;
+    /**
+     * Non-null values of columns which types have no special encoding
+     */
+    public final Object[] values;
+
+    public ColumnarRows(Class<?> rowType, int size, byte[] data, Object[] values) {
+        this.rowType = rowType;
+        this.size = size;
+        this.data = data;
+        this.values = values;
+    }
+
+    private static byte getKind(Class<?> type) {
+        if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+            return K_BOOLEAN;
+        } else if (byte.class.equals(type) || Byte.class.equals(type) ||
+                   short.class.equals(type) || Short.class.equals(type) ||
+                   int.class.equals(type) || Integer.class.equals(type) ||
+                   long.class.equals(type) || Long.class.equals(type)) {
+            return K_INTEGER;
+        } else if (char.class.equals(type) || Character.class.equals(type)) {
+            return K_CHAR;
+        } else if (float.class.equals(type) || Float.class.equals(type)) {
+            return K_FLOAT;
+        } else if (double.class.equals(type) || Double.class.equals(type)) {
+            return K_DOUBLE;
+        } else if (String.class.equals(type)) {
+            return K_STRING;
+        } else if (java.util.Date.class.equals(type) || java.sql.Date.class.equals(type) || java.sql.Time.class.equals(type)) {
+            return K_DATE;
+        } else if (java.sql.Timestamp.class.equals(type)) {
+            return K_TIMESTAMP;
+        } else if (LocalDate.class.equals(type)) {
+            return K_LOCAL_DATE;
+        } else if (LocalDateTime.class.equals(type)) {
+            return K_LOCAL_DATE_TIME;
+        } else if (BigDecimal.class.equals(type)) {
+            return K_DECIMAL;
+        } else {
+            return K_OBJECT;
+        }
+    }
+
+    /**
+     * Returns record component names (in canonical constructor order), or null if class is not a record.
+     */
+    private static String[] getRecordComponents(Class<?> type) {
+        try {
+            Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+            if (components == null)
+                return null;
+            Method getName = components.getClass().getComponentType().getMethod("getName");
+            String[] names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = (String) getName.invoke(components[i]);
+            }
+            return names;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns names listed in <code>ORDER</code> field of generated row type class, or null if there is no such field.
+     */
+    private static String[] getOrderField(Class<?> type) {
+        try {
+            Field orderField = type.getDeclaredField(ORDER_FIELD);
+            int modifiers = orderField.getModifiers();
+            if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || !String[].class.equals(orderField.getType()))
+                return null;
+            String[] names = (String[]) orderField.get(null);
+            return names == null ? null : names.clone();
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> getRowConstructor(Class<?> type, boolean record, Class<?>[] paramTypes) {
+        if (record) {
+            try {
+                return type.getConstructor(paramTypes);
+            } catch (NoSuchMethodException ex) {
+                return null;
+            }
+        }
+        List<Constructor<?>> constructors = new ArrayList<>();
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (!constructor.isSynthetic()) {
+                constructors.add(constructor);
+            }
+        }
+        if (constructors.size() != 1)
+            return null;
+        Constructor<?> constructor = constructors.get(0);
+        return Arrays.equals(constructor.getParameterTypes(), paramTypes) ? constructor : null;
+    }
+
+    private static Layout createLayout(Class<?> type) {
+        if (type.isInterface() || type.isArray() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers()) ||
+            Proxy.isProxyClass(type) || !Modifier.isPublic(type.getModifiers()))
+            return null;
+        String[] names = getRecordComponents(type);
+        boolean record = names != null;
+        if (!record) {
+            // inherited fields are not known to the preprocessor
+            if (!Object.class.equals(type.getSuperclass()))
+                return null;
+            names = getOrderField(type);
+            if (names == null)
+                return null;
+        }
+        int instanceFields = 0;
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || field.isSynthetic())
+                continue;
+            if (Modifier.isTransient(modifiers) || !Modifier.isFinal(modifiers))
+                return null;
+            instanceFields++;
+        }
+        if (names.length == 0 || names.length != instanceFields)
+            return null;
+        Field[] fields = new Field[names.length];
+        Class<?>[] paramTypes = new Class<?>[names.length];
+        try {
+            for (int i = 0; i < names.length; i++) {
+                Field field = type.getDeclaredField(names[i]);
+                if (Modifier.isStatic(field.getModifiers()))
+                    return null;
+                field.setAccessible(true);
+                fields[i] = field;
+                paramTypes[i] = field.getType();
+            }
+        } catch (NoSuchFieldException | RuntimeException ex) {
+            return null;
+        }
+        Constructor<?> constructor = getRowConstructor(type, record, paramTypes);
+        if (constructor == null)
+            return null;
+        return new Layout(constructor, fields, names);
+    }
+
+    private static Layout getLayout(Class<?> rowType) {
+        Layout layout = LAYOUTS.get(rowType);
+        return layout == NONE ? null : layout;
+    }
+
+    private static final class Writer {
+
+        byte[] buf = new byte[256];
+        int pos = 0;
+
+        void ensure(int count) {
+            if (pos + count > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + count));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeUnsigned(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeFixed(long value, int bytes) {
+            ensure(bytes);
+            for (int i = 0; i < bytes; i++) {
+                buf[pos++] = (byte) value;
+                value >>>= 8;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+
+        final byte[] buf;
+        int pos = 0;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() throws InvalidObjectException {
+            if (pos >= buf.length)
+                throw new InvalidObjectException("Unexpected end of columnar data");
+            return buf[pos++] & 0xFF;
+        }
+
+        byte[] readBytes(int count) throws InvalidObjectException {
+            if (count < 0 || pos + count > buf.length)
+                throw new InvalidObjectException("Unexpected end of columnar data");
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + count);
+            pos += count;
+            return bytes;
+        }
+
+        long readUnsigned() throws InvalidObjectException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new InvalidObjectException("Malformed varint in columnar data");
+        }
+
+        long readSigned() throws InvalidObjectException {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() throws InvalidObjectException {
+            return new String(readBytes((int) readUnsigned()), StandardCharsets.UTF_8);
+        }
+
+        long readFixed(int bytes) throws InvalidObjectException {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value |= (long) readByte() << (8 * i);
+            }
+            return value;
+        }
+    }
+
+    private static Object getValue(Field field, Object row) {
+        try {
+            return field.get(row);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Encodes list in columnar format.
+     *
+     * @return null if list is too short or its elements are not instances of the same row type
+     */
+    public static ColumnarRows encode(List<?> list) {
+        int size = list.size();
+        if (size < MIN_ROWS)
+            return null;
+        Object first = list.get(0);
+        if (first == null)
+            return null;
+        Class<?> rowType = first.getClass();
+        for (Object row : list) {
+            if (row == null || row.getClass() != rowType)
+                return null;
+        }
+        Layout layout = getLayout(rowType);
+        if (layout == null)
+            return null;
+        int columns = layout.fields.length;
+        Object[][] columnValues = new Object[columns][size];
+        for (int i = 0; i < size; i++) {
+            Object row = list.get(i);
+            for (int j = 0; j < columns; j++) {
+                Object value = getValue(layout.fields[j], row);
+                // Subclass of non-final field type cannot be restored from encoded value
+                byte kind = layout.kinds[j];
+                if (value != null && kind != K_OBJECT && value.getClass() != layout.fields[j].getType() && !layout.fields[j].getType().isPrimitive())
+                    return null;
+                columnValues[j][i] = value;
+            }
+        }
+        Writer out = new Writer();
+        out.writeByte(FORMAT);
+        out.writeUnsigned(columns);
+        for (String name : layout.names) {
+            out.writeString(name);
+        }
+        out.writeBytes(layout.kinds);
+        List<Object> values = new ArrayList<>();
+        for (int j = 0; j < columns; j++) {
+            Object[] column = columnValues[j];
+            if (layout.nullable[j]) {
+                writeNulls(out, column);
+            }
+            writeColumn(out, layout.kinds[j], column, values);
+        }
+        return new ColumnarRows(rowType, size, out.toByteArray(), values.toArray());
+    }
+
+    private static void writeNulls(Writer out, Object[] column) {
+        byte[] bitmap = new byte[(column.length + 7) / 8];
+        boolean hasNulls = false;
+        for (int i = 0; i < column.length; i++) {
+            if (column[i] == null) {
+                bitmap[i / 8] |= 1 << (i % 8);
+                hasNulls = true;
+            }
+        }
+        if (hasNulls) {
+            out.writeByte(1);
+            out.writeBytes(bitmap);
+        } else {
+            out.writeByte(0);
+        }
+    }
+
+    private static void writeColumn(Writer out, byte kind, Object[] column, List<Object> values) {
+        long prev = 0;
+        Map<String, Integer> dictionary = kind == K_STRING ? new HashMap<>() : null;
+        for (Object value : column) {
+            if (value == null)
+                continue;
+            switch (kind) {
+            case K_BOOLEAN:
+                out.writeByte((Boolean) value ? 1 : 0);
+                break;
+            case K_INTEGER: {
+                long v = ((Number) value).longValue();
+                out.writeSigned(v - prev);
+                prev = v;
+                break;
+            }
+            case K_CHAR:
+                out.writeUnsigned((Character) value);
+                break;
+            case K_FLOAT:
+                out.writeFixed(Float.floatToRawIntBits((Float) value), 4);
+                break;
+            case K_DOUBLE:
+                out.writeFixed(Double.doubleToRawLongBits((Double) value), 8);
+                break;
+            case K_STRING: {
+                String s = (String) value;
+                Integer index = dictionary.get(s);
+                if (index != null) {
+                    out.writeUnsigned(index.intValue() + 1);
+                } else {
+                    out.writeUnsigned(0);
+                    out.writeString(s);
+                    if (dictionary.size() < MAX_DICTIONARY) {
+                        dictionary.put(s, dictionary.size());
+                    }
+                }
+                break;
+            }
+            case K_DATE:
+            case K_TIMESTAMP: {
+                java.util.Date date = (java.util.Date) value;
+                long v = date.getTime();
+                out.writeSigned(v - prev);
+                prev = v;
+                if (kind == K_TIMESTAMP) {
+                    out.writeUnsigned(((java.sql.Timestamp) date).getNanos() % 1000000);
+                }
+                break;
+            }
+            case K_LOCAL_DATE: {
+                long v = ((LocalDate) value).toEpochDay();
+                out.writeSigned(v - prev);
+                prev = v;
+                break;
+            }
+            case K_LOCAL_DATE_TIME: {
+                LocalDateTime dt = (LocalDateTime) value;
+                long v = dt.toEpochSecond(ZoneOffset.UTC);
+                out.writeSigned(v - prev);
+                prev = v;
+                out.writeUnsigned(dt.getNano());
+                break;
+            }
+            case K_DECIMAL: {
+                BigDecimal decimal = (BigDecimal) value;
+                byte[] bytes = decimal.unscaledValue().toByteArray();
+                out.writeSigned(decimal.scale());
+                out.writeUnsigned(bytes.length);
+                out.writeBytes(bytes);
+                break;
+            }
+            default:
+                values.add(value);
+                break;
+            }
+        }
+    }
+
+    private static Object toType(long value, Class<?> type) {
+        if (byte.class.equals(type) || Byte.class.equals(type)) {
+            return (byte) value;
+        } else if (short.class.equals(type) || Short.class.equals(type)) {
+            return (short) value;
+        } else if (int.class.equals(type) || Integer.class.equals(type)) {
+            return (int) value;
+        } else {
+            return value;
+        }
+    }
+
+    private static Object toDate(long time, Class<?> type) {
+        if (java.sql.Date.class.equals(type)) {
+            return new java.sql.Date(time);
+        } else if (java.sql.Time.class.equals(type)) {
+            return new java.sql.Time(time);
+        } else {
+            return new java.util.Date(time);
+        }
+    }
+
+    private static void readColumn(Reader in, byte kind, Class<?> type, Object[] column, boolean[] nulls,
+                                   Iterator<Object> values) throws InvalidObjectException {
+        long prev = 0;
+        List<String> dictionary = kind == K_STRING ? new ArrayList<>() : null;
+        for (int i = 0; i < column.length; i++) {
+            if (nulls != null && nulls[i])
+                continue;
+            Object value;
+            switch (kind) {
+            case K_BOOLEAN:
+                value = in.readByte() != 0;
+                break;
+            case K_INTEGER:
+                prev += in.readSigned();
+                value = toType(prev, type);
+                break;
+            case K_CHAR:
+                value = (char) in.readUnsigned();
+                break;
+            case K_FLOAT:
+                value = Float.intBitsToFloat((int) in.readFixed(4));
+                break;
+            case K_DOUBLE:
+                value = Double.longBitsToDouble(in.readFixed(8));
+                break;
+            case K_STRING: {
+                int code = (int) in.readUnsigned();
+                if (code > 0) {
+                    if (code > dictionary.size())
+                        throw new InvalidObjectException("Invalid dictionary index in columnar data");
+                    value = dictionary.get(code - 1);
+                } else {
+                    String s = in.readString();
+                    if (dictionary.size() < MAX_DICTIONARY) {
+                        dictionary.add(s);
+                    }
+                    value = s;
+                }
+                break;
+            }
+            case K_DATE:
+                prev += in.readSigned();
+                value = toDate(prev, type);
+                break;
+            case K_TIMESTAMP: {
+                prev += in.readSigned();
+                java.sql.Timestamp ts = new java.sql.Timestamp(prev);
+                ts.setNanos(ts.getNanos() + (int) in.readUnsigned());
+                value = ts;
+                break;
+            }
+            case K_LOCAL_DATE:
+                prev += in.readSigned();
+                value = LocalDate.ofEpochDay(prev);
+                break;
+            case K_LOCAL_DATE_TIME:
+                prev += in.readSigned();
+                value = LocalDateTime.ofEpochSecond(prev, (int) in.readUnsigned(), ZoneOffset.UTC);
+                break;
+            case K_DECIMAL: {
+                int scale = (int) in.readSigned();
+                value = new BigDecimal(new BigInteger(in.readBytes((int) in.readUnsigned())), scale);
+                break;
+            }
+            default:
+                if (!values.hasNext())
+                    throw new InvalidObjectException("Not enough values in columnar data");
+                value = values.next();
+                break;
+            }
+            column[i] = value;
+        }
+    }
+
+    /**
+     * Decodes rows.
+     */
+    public List<Object> decode() throws InvalidObjectException {
+        Layout layout = getLayout(rowType);
+        if (layout == null)
+            throw new InvalidObjectException("Class " + rowType.getName() + " cannot be decoded from columnar data");
+        Reader in = new Reader(data);
+        if (in.readByte() != FORMAT)
+            throw new InvalidObjectException("Unsupported columnar data format");
+        int columns = (int) in.readUnsigned();
+        if (columns != layout.names.length)
+            throw new InvalidObjectException("Fields of " + rowType.getName() + " differ on the other side");
+        for (String name : layout.names) {
+            if (!name.equals(in.readString()))
+                throw new InvalidObjectException("Fields of " + rowType.getName() + " differ on the other side");
+        }
+        byte[] kinds = in.readBytes(columns);
+        if (!Arrays.equals(kinds, layout.kinds))
+            throw new InvalidObjectException("Fields of " + rowType.getName() + " differ on the other side");
+        Object[][] columnValues = new Object[columns][size];
+        Iterator<Object> valueIterator = Arrays.asList(values).iterator();
+        for (int j = 0; j < columns; j++) {
+            boolean[] nulls = null;
+            if (layout.nullable[j] && in.readByte() != 0) {
+                byte[] bitmap = in.readBytes((size + 7) / 8);
+                nulls = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    nulls[i] = (bitmap[i / 8] & (1 << (i % 8))) != 0;
+                }
+            }
+            readColumn(in, kinds[j], layout.fields[j].getType(), columnValues[j], nulls, valueIterator);
+        }
+        List<Object> rows = new ArrayList<>(size);
+        Object[] args = new Object[columns];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < columns; j++) {
+                args[j] = columnValues[j][i];
+            }
+            try {
+                rows.add(layout.constructor.newInstance(args));
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+                InvalidObjectException error = new InvalidObjectException("Cannot create instance of " + rowType.getName());
+                error.initCause(ex);
+                throw error;
+            }
+        }
+        return rows;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return decode();
+    }
+}
@@ -0,0 +1,52 @@
+package sqlg3.remote.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression statistics collected by {@link BaseSerializer}.
+ */
+public final class CompressionStats {
+
+    /**
+     * Number of messages written
+     */
+    public final AtomicLong written = new AtomicLong();
+    /**
+     * Number of messages written compressed (other messages were below compression threshold)
+     */
+    public final AtomicLong compressed = new AtomicLong();
+    /**
+     * Size of compressed messages before compression
+     */
+    public final AtomicLong rawBytes = new AtomicLong();
+    /**
+     * Size of compressed messages after compression
+     */
+    public final AtomicLong compressedBytes = new AtomicLong();
+    /**
+     * Total time in nanoseconds spent compressing
+     */
+    public final AtomicLong compressTime = new AtomicLong();
+    /**
+     * Number of compressed messages read
+     */
+    public final AtomicLong decompressed = new AtomicLong();
+    /**
+     * Total time in nanoseconds spent decompressing
+     */
+    public final AtomicLong decompressTime = new AtomicLong();
+
+    /**
+     * @return compressed size to original size ratio of compressed messages, 1 if nothing was compressed
+     */
+    public double getRatio() {
+        long raw = rawBytes.get();
+        return raw == 0 ? 1.0 : (double) compressedBytes.get() / raw;
+    }
+
+    public String toString() {
+        return "written: " + written + ", compressed: " + compressed + ", ratio: " + String.format("%.3f", getRatio()) +
+               ", compress time: " + compressTime.get() / 1000000 + " ms, decompressed: " + decompressed +
+               ", decompress time: " + decompressTime.get() / 1000000 + " ms";
+    }
+}
@@ -10,5 +10,11 @@ public enum HttpCommand {
     GET_CURRENT_SESSION,
     ROLLBACK,
     COMMIT,
-    INVOKE
+    INVOKE,
+    BATCH,
+    GET_METHOD_TABLE,
+    /**
+     * Remote call with method ID from {@link MethodTable}: first parameter is method ID, the rest are method arguments
+     */
+    INVOKE_BY_ID
 }
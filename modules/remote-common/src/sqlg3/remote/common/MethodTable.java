@@ -0,0 +1,87 @@
+package sqlg3.remote.common;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Numeric identifiers of business interface methods for compact remote calls ({@link HttpCommand#INVOKE_BY_ID}).
+ * Client requests table for interface once per session ({@link HttpCommand#GET_METHOD_TABLE}), and
+ * then sends only method ID instead of interface class, method name and parameter types.
+ * Methods are numbered in the order of their signatures, so client uses IDs only if its
+ * signatures are the same as on the server.
+ */
+public final class MethodTable implements Serializable {
+
+    private static final ClassValue<Method[]> METHODS = new ClassValue<Method[]>() {
+        @Override
+        protected Method[] computeValue(Class<?> iface) {
+            return Arrays.stream(iface.getMethods())
+                .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                .sorted(Comparator.comparing(MethodTable::getSignature))
+                .toArray(Method[]::new);
+        }
+    };
+
+    /**
+     * Interface number in the session
+     */
+    public final int interfaceId;
+    /**
+     * Method signatures in the order of method numbers
+     */
+    public final String[] signatures;
+
+    public MethodTable(int interfaceId, String[] signatures) {
+        this.interfaceId = interfaceId;
+        this.signatures = signatures;
+    }
+
+    public static MethodTable create(int interfaceId, Class<?> iface) {
+        Method[] methods = getMethods(iface);
+        String[] signatures = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            signatures[i] = getSignature(methods[i]);
+        }
+        return new MethodTable(interfaceId, signatures);
+    }
+
+    public static String getSignature(Method method) {
+        StringBuilder buf = new StringBuilder(method.getName()).append('(');
+        Class<?>[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0)
+                buf.append(',');
+            buf.append(paramTypes[i].getName());
+        }
+        return buf.append(')').toString();
+    }
+
+    /**
+     * Returns interface methods in the order of method numbers. Returned array should not be modified.
+     */
+    public static Method[] getMethods(Class<?> iface) {
+        return METHODS.get(iface);
+    }
+
+    /**
+     * Returns true if client interface methods are the same as server ones.
+     */
+    public boolean matches(Class<?> iface) {
+        return Arrays.equals(signatures, create(interfaceId, iface).signatures);
+    }
+
+    public static int getMethodId(int interfaceId, int methodIndex) {
+        return (interfaceId << 16) | methodIndex;
+    }
+
+    public static int getInterfaceId(int methodId) {
+        return methodId >>> 16;
+    }
+
+    public static int getMethodIndex(int methodId) {
+        return methodId & 0xFFFF;
+    }
+}
@@ -0,0 +1,152 @@
+package sqlg3.remote.common;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serializable replacement for {@link InputStream} and {@link Reader} values in remote calls
+ * (see {@link BaseJavaSerializer}). Content is written in chunks directly from the source stream and
+ * on the receiving side is kept in memory if it is small or in temporary file otherwise,
+ * so large objects do not cause heap spikes.
+ */
+final class StreamedLob implements Serializable {
+
+    private static final int CHUNK = 8192;
+    private static final int MEMORY_LIMIT = 64 * 1024;
+
+    private final boolean text;
+    private transient InputStream binarySource;
+    private transient Reader textSource;
+    private transient byte[] data;
+    private transient Path file;
+
+    StreamedLob(InputStream source) {
+        this.text = false;
+        this.binarySource = source;
+    }
+
+    StreamedLob(Reader source) {
+        this.text = true;
+        this.textSource = source;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (text) {
+            // One writer for the whole content, so surrogate pairs split between reads are encoded correctly
+            OutputStream chunks = new OutputStream() {
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) {
+                        out.writeInt(len);
+                        out.write(b, off, len);
+                    }
+                }
+            };
+            try (Reader in = textSource; Writer writer = new OutputStreamWriter(chunks, StandardCharsets.UTF_8)) {
+                char[] buf = new char[CHUNK];
+                while (true) {
+                    int read = in.read(buf);
+                    if (read < 0)
+                        break;
+                    writer.write(buf, 0, read);
+                }
+            }
+        } else {
+            try (InputStream in = binarySource) {
+                byte[] buf = new byte[CHUNK];
+                while (true) {
+                    int read = in.read(buf);
+                    if (read < 0)
+                        break;
+                    out.writeInt(read);
+                    out.write(buf, 0, read);
+                }
+            }
+        }
+        out.writeInt(-1);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        OutputStream out = memory;
+        byte[] buf = new byte[CHUNK * 3];
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < 0)
+                    break;
+                if (length > buf.length) {
+                    buf = new byte[length];
+                }
+                in.readFully(buf, 0, length);
+                if (file == null && memory.size() + length > MEMORY_LIMIT) {
+                    file = Files.createTempFile("sqlg", ".lob");
+                    out = new BufferedOutputStream(Files.newOutputStream(file));
+                    memory.writeTo(out);
+                    memory = null;
+                }
+                out.write(buf, 0, length);
+            }
+        } catch (IOException | RuntimeException | Error ex) {
+            if (file != null) {
+                try {
+                    out.close();
+                } finally {
+                    Files.deleteIfExists(file);
+                    file = null;
+                }
+            }
+            throw ex;
+        }
+        if (file != null) {
+            out.close();
+        }
+        if (memory != null) {
+            data = memory.toByteArray();
+        }
+    }
+
+    private InputStream openBytes() throws IOException {
+        if (data != null)
+            return new ByteArrayInputStream(data);
+        Path tmp = file;
+        InputStream in;
+        try {
+            in = Files.newInputStream(tmp, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        // File is deleted on close (not on JVM exit, since deleteOnExit keeps all paths in memory until exit)
+        return new FilterInputStream(in) {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns received content as {@link InputStream} or {@link Reader}.
+     */
+    Object toValue() throws IOException {
+        InputStream bytes = openBytes();
+        return text ? new InputStreamReader(bytes, StandardCharsets.UTF_8) : bytes;
+    }
+}
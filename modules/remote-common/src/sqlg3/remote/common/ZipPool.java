@@ -0,0 +1,224 @@
+package sqlg3.remote.common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Pool of {@link Deflater}/{@link Inflater} instances (each holds native zlib memory which otherwise is released
+ * only by GC) and streams which use them.
+ * <p>
+ * Compressed message starts with flag byte: {@link #RAW} if the rest of message is not compressed
+ * (when it is shorter than threshold), {@link #DEFLATED} if the rest is compressed.
+ */
+final class ZipPool {
+
+    static final int RAW = 0;
+    static final int DEFLATED = 1;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ArrayBlockingQueue<Deflater> deflaters;
+    private final ArrayBlockingQueue<Inflater> inflaters;
+
+    ZipPool(int size) {
+        this.deflaters = new ArrayBlockingQueue<>(size);
+        this.inflaters = new ArrayBlockingQueue<>(size);
+    }
+
+    private Deflater takeDeflater(int level) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null)
+            return new Deflater(level);
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    private void returnDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private Inflater takeInflater() {
+        Inflater inflater = inflaters.poll();
+        return inflater == null ? new Inflater() : inflater;
+    }
+
+    private void returnInflater(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private static final class TimedDeflaterOutputStream extends DeflaterOutputStream {
+
+        long time = 0;
+
+        TimedDeflaterOutputStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, BUFFER_SIZE);
+        }
+
+        /**
+         * Same as in superclass, but measures only compression time
+         */
+        @Override
+        protected void deflate() throws IOException {
+            long t0 = System.nanoTime();
+            int len = def.deflate(buf, 0, buf.length);
+            time += System.nanoTime() - t0;
+            if (len > 0) {
+                out.write(buf, 0, len);
+            }
+        }
+    }
+
+    /**
+     * Buffers data until it reaches threshold, and only then starts compression.
+     */
+    private final class CompressingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final int level;
+        private final CompressionStats stats;
+        private final byte[] head;
+        private int headCount = 0;
+        private Deflater deflater = null;
+        private TimedDeflaterOutputStream deflating = null;
+        private boolean closed = false;
+
+        CompressingOutputStream(OutputStream out, int level, int threshold, CompressionStats stats) {
+            this.out = out;
+            this.level = level;
+            this.stats = stats;
+            this.head = new byte[threshold];
+        }
+
+        private void startDeflate() throws IOException {
+            out.write(DEFLATED);
+            deflater = takeDeflater(level);
+            deflating = new TimedDeflaterOutputStream(out, deflater);
+            deflating.write(head, 0, headCount);
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (deflating == null) {
+                if (headCount + len <= head.length) {
+                    System.arraycopy(b, off, head, headCount, len);
+                    headCount += len;
+                    return;
+                }
+                startDeflate();
+            }
+            deflating.write(b, off, len);
+        }
+
+        public void flush() throws IOException {
+            if (deflating != null) {
+                deflating.flush();
+            }
+        }
+
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                stats.written.incrementAndGet();
+                if (deflating == null) {
+                    out.write(RAW);
+                    out.write(head, 0, headCount);
+                } else {
+                    deflating.finish();
+                    stats.compressed.incrementAndGet();
+                    stats.rawBytes.addAndGet(deflater.getBytesRead());
+                    stats.compressedBytes.addAndGet(deflater.getBytesWritten());
+                    stats.compressTime.addAndGet(deflating.time);
+                }
+            } finally {
+                if (deflater != null) {
+                    returnDeflater(deflater);
+                    deflater = null;
+                }
+                out.close();
+            }
+        }
+    }
+
+    private final class DecompressingInputStream extends InflaterInputStream {
+
+        private final CompressionStats stats;
+        private long ioTime = 0;
+        private long totalTime = 0;
+        private boolean closed = false;
+
+        DecompressingInputStream(InputStream in, CompressionStats stats) {
+            super(in, takeInflater(), BUFFER_SIZE);
+            this.stats = stats;
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            long t0 = System.nanoTime();
+            super.fill();
+            ioTime += System.nanoTime() - t0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long t0 = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                totalTime += System.nanoTime() - t0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            stats.decompressed.incrementAndGet();
+            stats.decompressTime.addAndGet(totalTime - ioTime);
+            try {
+                super.close();
+            } finally {
+                returnInflater(inf);
+            }
+        }
+    }
+
+    /**
+     * @param level compression level (see {@link Deflater#setLevel})
+     * @param threshold messages shorter than this are not compressed
+     */
+    OutputStream compress(OutputStream os, int level, int threshold, CompressionStats stats) {
+        return new CompressingOutputStream(os, level, threshold, stats);
+    }
+
+    InputStream decompress(InputStream is, CompressionStats stats) throws IOException {
+        int flag = is.read();
+        if (flag == RAW) {
+            return is;
+        } else if (flag == DEFLATED) {
+            return new DecompressingInputStream(is, stats);
+        } else if (flag < 0) {
+            throw new EOFException("Empty message");
+        } else {
+            throw new IOException("Unknown compression flag: " + flag);
+        }
+    }
+}
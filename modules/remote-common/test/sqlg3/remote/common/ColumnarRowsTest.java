@@ -0,0 +1,147 @@
+package sqlg3.remote.common;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+final class ColumnarRowsTest {
+
+    /**
+     * Same shape as row type class generated by preprocessor
+     */
+    public static final class Row implements Serializable {
+
+        public static final String[] ORDER = {"id", "parentId", "name", "code", "created", "amount", "day"};
+
+        // declared out of constructor order: order is taken from ORDER
+        private final String code;
+        private final int id;
+        private final Long parentId;
+        private final String name;
+        private final Timestamp created;
+        private final BigDecimal amount;
+        private final LocalDate day;
+
+        public Row(int id, Long parentId, String name, String code, Timestamp created, BigDecimal amount, LocalDate day) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.code = code;
+            this.created = created;
+            this.amount = amount;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Row))
+                return false;
+            Row that = (Row) obj;
+            return id == that.id && Objects.equals(parentId, that.parentId) && Objects.equals(name, that.name) &&
+                   Objects.equals(code, that.code) && Objects.equals(created, that.created) &&
+                   Objects.equals(amount, that.amount) && Objects.equals(day, that.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + parentId + ":" + name + ":" + code + ":" + created + ":" + amount + ":" + day;
+        }
+    }
+
+    public static class Base implements Serializable {
+
+        public final int base;
+
+        public Base(int base) {
+            this.base = base;
+        }
+    }
+
+    public static final class Derived extends Base {
+
+        public static final String[] ORDER = {"value"};
+
+        private final String value;
+
+        public Derived(String value) {
+            super(42);
+            this.value = value;
+        }
+    }
+
+    public static final class Dto implements Serializable {
+
+        private final String first;
+        private final String second;
+
+        public Dto(String first, String second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private static final BaseJavaSerializer SERIALIZER = new BaseJavaSerializer() {};
+
+    private static Object roundTrip(Object obj) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = SERIALIZER.writeData(bos)) {
+            oos.writeObject(obj);
+        }
+        try (ObjectInputStream ois = SERIALIZER.readData(new ByteArrayInputStream(bos.toByteArray()))) {
+            return ois.readObject();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    private static void testRowTypes() throws Exception {
+        Timestamp ts = Timestamp.valueOf("2020-02-29 13:45:10.123456789");
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Row(
+                i - 50,
+                i % 3 == 0 ? null : (long) i * 1000000007L,
+                i % 5 == 0 ? null : "name" + (i % 7),
+                "\uD83D\uDE00" + i,
+                i % 4 == 0 ? null : new Timestamp(ts.getTime() + i * 1000L),
+                i % 6 == 0 ? null : new BigDecimal("-12345.6789").add(BigDecimal.valueOf(i, 2)),
+                i % 8 == 0 ? null : LocalDate.of(2020, 1, 1).plusDays(i * 37L)
+            ));
+        }
+        rows.set(1, new Row(Integer.MIN_VALUE, Long.MIN_VALUE, "", "", ts, new BigDecimal("1E+10"), LocalDate.MIN));
+        rows.set(2, new Row(Integer.MAX_VALUE, Long.MAX_VALUE, null, null, null, null, LocalDate.MAX));
+        check(ColumnarRows.encode(rows) != null, "row type list is not encoded");
+        Object copy = roundTrip(rows);
+        check(copy instanceof ArrayList, "decoded list is " + copy.getClass());
+        check(rows.equals(copy), "decoded rows differ: " + copy);
+    }
+
+    private static void testOtherClasses() throws Exception {
+        List<Derived> derived = Arrays.asList(new Derived("a"), new Derived("b"));
+        check(ColumnarRows.encode(derived) == null, "class with superclass is encoded");
+        List<Dto> dtos = new ArrayList<>(Arrays.asList(new Dto("a", "b"), new Dto("c", "d")));
+        check(ColumnarRows.encode(dtos) == null, "class without field order is encoded");
+        @SuppressWarnings("unchecked")
+        List<Dto> copy = (List<Dto>) roundTrip(dtos);
+        check("b".equals(copy.get(0).second) && "c".equals(copy.get(1).first), "DTO fields are mixed up");
+    }
+
+    public static void main(String[] args) throws Exception {
+        testRowTypes();
+        testOtherClasses();
+        System.out.println("OK");
+    }
+}
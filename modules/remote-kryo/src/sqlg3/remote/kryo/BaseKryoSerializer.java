@@ -1,27 +1,101 @@
 package sqlg3.remote.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
 import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 import sqlg3.remote.common.BaseSerializer;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 
+/**
+ * Base for Kryo serializers. {@link Kryo} instances are taken from a pool which keeps at most <code>poolSize</code>
+ * free instances. If pool is bounded, at most <code>poolSize</code> instances are used at the same time and other
+ * threads wait for a free one, otherwise new instances are created when all are in use. {@link Input}/{@link Output} buffers
+ * are pooled too, and returned to the pool when closed. {@link ArrayList} of row types is written in columnar format
+ * if {@link #columnar} is set, unless row type has serializer generated by preprocessor (see {@link ColumnarListSerializer}).
+ */
 public abstract class BaseKryoSerializer extends BaseSerializer<Input, Output> {
 
+    public static final int DEFAULT_POOL_SIZE = 64;
+    private static final int BUFFER_SIZE = 8192;
+
     private Consumer<Kryo> kryoCustomizer = BaseKryoSerializer::setupKryo;
+    /**
+     * Class registrations generated by preprocessor, null if there are none
+     */
+    protected final KryoManifest manifest = KryoManifest.load();
+    public final KryoStats kryoStats = new KryoStats();
+
+    private final Semaphore kryoPermits;
+    private final Pool<Kryo> kryoPool;
+    private final Pool<Input> inputPool;
+    private final Pool<Output> outputPool;
 
-    protected final ThreadLocal<Kryo> kryos = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        kryoCustomizer.accept(kryo);
-        return kryo;
-    });
+    /**
+     * @param poolSize maximum number of {@link Kryo} instances (and buffers kept in pools)
+     * @param directBuffers true to use direct (off-heap) input/output buffers
+     * @param bounded true if threads should wait for a free {@link Kryo} instance when <code>poolSize</code> instances
+     *                are in use, false to create new instance
+     */
+    protected BaseKryoSerializer(int poolSize, boolean directBuffers, boolean bounded) {
+        this.kryoPermits = bounded ? new Semaphore(poolSize) : null;
+        this.kryoPool = new Pool<Kryo>(true, false, poolSize) {
+            @Override
+            protected Kryo create() {
+                kryoStats.created.incrementAndGet();
+                Kryo kryo = new Kryo();
+                kryo.addDefaultSerializer(ArrayList.class, new ColumnarListSerializer(() -> columnar, manifest));
+                kryoCustomizer.accept(kryo);
+                if (manifest != null) {
+                    manifest.register(kryo);
+                }
+                return kryo;
+            }
+        };
+        this.inputPool = new Pool<Input>(true, true, poolSize) {
+            @Override
+            protected Input create() {
+                kryoStats.buffersCreated.incrementAndGet();
+                return directBuffers ? new ByteBufferInput(BUFFER_SIZE) : new Input(BUFFER_SIZE);
+            }
+        };
+        this.outputPool = new Pool<Output>(true, true, poolSize) {
+            @Override
+            protected Output create() {
+                kryoStats.buffersCreated.incrementAndGet();
+                return directBuffers ? new ByteBufferOutput(BUFFER_SIZE, -1) : new Output(BUFFER_SIZE, -1);
+            }
+        };
+    }
+
+    /**
+     * @param poolSize maximum number of {@link Kryo} instances (and buffers kept in pools)
+     * @param directBuffers true to use direct (off-heap) input/output buffers
+     */
+    protected BaseKryoSerializer(int poolSize, boolean directBuffers) {
+        this(poolSize, directBuffers, true);
+    }
+
+    protected BaseKryoSerializer() {
+        this(DEFAULT_POOL_SIZE, false);
+    }
+
+    protected String getManifestVersion() {
+        return manifest == null ? null : manifest.version;
+    }
 
     public static void setupKryo(Kryo kryo) {
         kryo.setRegistrationRequired(false);
@@ -33,21 +107,110 @@ public abstract class BaseKryoSerializer extends BaseSerializer<Input, Output> {
         return kryoCustomizer;
     }
 
+    /**
+     * Should be set before first use of serializer, since {@link Kryo} instances are reused.
+     */
     public void setKryoCustomizer(Consumer<Kryo> kryoCustomizer) {
         this.kryoCustomizer = kryoCustomizer;
     }
 
-    public Kryo getKryo() {
-        return kryos.get();
+    /**
+     * Takes {@link Kryo} instance from the pool, waiting if pool is bounded and all instances are in use.
+     * Instance should be returned by {@link #freeKryo(Kryo)}.
+     */
+    public Kryo obtainKryo() {
+        if (kryoPermits == null) {
+            kryoStats.obtained.incrementAndGet();
+            return kryoPool.obtain();
+        }
+        if (!kryoPermits.tryAcquire()) {
+            long t0 = System.nanoTime();
+            kryoPermits.acquireUninterruptibly();
+            kryoStats.waits.incrementAndGet();
+            kryoStats.waitTime.addAndGet(System.nanoTime() - t0);
+        }
+        kryoStats.obtained.incrementAndGet();
+        try {
+            return kryoPool.obtain();
+        } catch (RuntimeException | Error ex) {
+            kryoPermits.release();
+            throw ex;
+        }
     }
 
+    public void freeKryo(Kryo kryo) {
+        kryoPool.free(kryo);
+        if (kryoPermits != null) {
+            kryoPermits.release();
+        }
+    }
+
+    private static int getCapacity(Output output) {
+        if (output instanceof ByteBufferOutput) {
+            return ((ByteBufferOutput) output).getByteBuffer().capacity();
+        } else {
+            return output.getBuffer().length;
+        }
+    }
+
+    /**
+     * Returned {@link Output} goes back to the pool when closed.
+     */
     @Override
     protected Output write(OutputStream os) throws IOException {
-        return new Output(os);
+        Output output = outputPool.obtain();
+        int capacity = getCapacity(output);
+        output.setOutputStream(new FilterOutputStream(os) {
+
+            private boolean closed = false;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed)
+                    return;
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    if (getCapacity(output) > capacity) {
+                        kryoStats.bufferGrowths.incrementAndGet();
+                    }
+                    output.setOutputStream(null);
+                    outputPool.free(output);
+                }
+            }
+        });
+        return output;
     }
 
+    /**
+     * Returned {@link Input} goes back to the pool when closed.
+     */
     @Override
     protected Input read(InputStream is) throws IOException {
-        return new Input(is);
+        Input input = inputPool.obtain();
+        input.setInputStream(new FilterInputStream(is) {
+
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed)
+                    return;
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    input.setInputStream(null);
+                    inputPool.free(input);
+                }
+            }
+        });
+        return input;
     }
 }
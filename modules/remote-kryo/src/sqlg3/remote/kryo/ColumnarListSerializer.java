@@ -0,0 +1,76 @@
+package sqlg3.remote.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import sqlg3.remote.common.ColumnarRows;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@link ArrayList} serializer which writes lists of row types in columnar format (see {@link ColumnarRows}),
+ * other lists are written by {@link CollectionSerializer}. Lists of row types which have serializer generated
+ * by preprocessor (see {@link KryoManifest}) are not written in columnar format: generated serializer
+ * does not use reflection, unlike {@link ColumnarRows}.
+ */
+final class ColumnarListSerializer extends CollectionSerializer<ArrayList<?>> {
+
+    private final BooleanSupplier enabled;
+    private final KryoManifest manifest;
+
+    /**
+     * @param manifest class manifest, null if there is none
+     */
+    ColumnarListSerializer(BooleanSupplier enabled, KryoManifest manifest) {
+        this.enabled = enabled;
+        this.manifest = manifest;
+    }
+
+    private boolean isColumnar(ArrayList<?> list) {
+        if (!enabled.getAsBoolean())
+            return false;
+        if (manifest != null && !list.isEmpty()) {
+            Object first = list.get(0);
+            if (first != null && manifest.hasSerializer(first.getClass()))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, ArrayList<?> list) {
+        ColumnarRows rows = isColumnar(list) ? ColumnarRows.encode(list) : null;
+        output.writeBoolean(rows != null);
+        if (rows == null) {
+            super.write(kryo, output, list);
+            return;
+        }
+        kryo.writeClass(output, rows.rowType);
+        output.writeVarInt(rows.size, true);
+        output.writeVarInt(rows.data.length, true);
+        output.writeBytes(rows.data);
+        kryo.writeObject(output, rows.values);
+    }
+
+    @Override
+    public ArrayList<?> read(Kryo kryo, Input input, Class<? extends ArrayList<?>> type) {
+        if (!input.readBoolean())
+            return super.read(kryo, input, type);
+        Class<?> rowType = kryo.readClass(input).getType();
+        int size = input.readVarInt(true);
+        byte[] data = input.readBytes(input.readVarInt(true));
+        Object[] values = kryo.readObject(input, Object[].class);
+        ArrayList<?> list;
+        try {
+            list = (ArrayList<?>) new ColumnarRows(rowType, size, data, values).decode();
+        } catch (InvalidObjectException ex) {
+            throw new KryoException(ex);
+        }
+        kryo.reference(list);
+        return list;
+    }
+}
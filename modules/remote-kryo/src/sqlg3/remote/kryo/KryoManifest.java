@@ -0,0 +1,135 @@
+package sqlg3.remote.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class registrations from manifest generated by preprocessor (<code>sqlg3-classes.txt</code> resource).
+ * Registered classes are written as numeric IDs instead of class names. Row types can have serializers
+ * generated by preprocessor, they are registered along with the class.
+ * Client and server should have the same manifest, it is checked on session open by comparing versions.
+ */
+public final class KryoManifest {
+
+    public static final String RESOURCE = "sqlg3-classes.txt";
+    /**
+     * First ID of manifest classes, lower IDs are left for Kryo default and custom registrations
+     */
+    public static final int FIRST_ID = 100;
+
+    private static final String VERSION_PREFIX = "version=";
+
+    public final String version;
+    private final List<Class<?>> classes;
+    private final List<Serializer<?>> serializers;
+    private final Set<Class<?>> withSerializers = new HashSet<>();
+
+    /**
+     * @param serializers serializers of classes (with the same index), null element for default serializer
+     */
+    public KryoManifest(String version, List<Class<?>> classes, List<Serializer<?>> serializers) {
+        this.version = version;
+        this.classes = classes;
+        this.serializers = serializers;
+        for (int i = 0; i < classes.size(); i++) {
+            if (classes.get(i) != null && serializers.get(i) != null) {
+                withSerializers.add(classes.get(i));
+            }
+        }
+    }
+
+    /**
+     * Serializer named in the manifest is required: default serializer uses different format, and manifest
+     * version check would not detect the mismatch with the other side.
+     */
+    private static Serializer<?> newSerializer(String className, Class<?> cls, ClassLoader loader) {
+        try {
+            Class<?> serializerClass = Class.forName(className, true, loader);
+            return (Serializer<?>) serializerClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+            throw new IllegalStateException("Cannot create serializer " + className + " of " + cls.getName() + " from " + RESOURCE, ex);
+        }
+    }
+
+    /**
+     * Reads manifest from the classpath.
+     *
+     * @return null if there is no manifest
+     */
+    public static KryoManifest load(ClassLoader loader) {
+        InputStream is = loader.getResourceAsStream(RESOURCE);
+        if (is == null)
+            return null;
+        String version = null;
+        List<Class<?>> classes = new ArrayList<>();
+        List<Serializer<?>> serializers = new ArrayList<>();
+        try (BufferedReader rdr = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            while (true) {
+                String line = rdr.readLine();
+                if (line == null)
+                    break;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                if (line.startsWith(VERSION_PREFIX)) {
+                    version = line.substring(VERSION_PREFIX.length());
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                Class<?> cls;
+                try {
+                    cls = Class.forName(parts[0], false, loader);
+                } catch (ClassNotFoundException | LinkageError ex) {
+                    // class was removed, its ID is not reused
+                    cls = null;
+                }
+                classes.add(cls);
+                serializers.add(cls != null && parts.length > 1 ? newSerializer(parts[1], cls, loader) : null);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new KryoManifest(version, Collections.unmodifiableList(classes), Collections.unmodifiableList(serializers));
+    }
+
+    public static KryoManifest load() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return load(loader == null ? KryoManifest.class.getClassLoader() : loader);
+    }
+
+    /**
+     * Returns true if class has serializer generated by preprocessor.
+     */
+    public boolean hasSerializer(Class<?> cls) {
+        return withSerializers.contains(cls);
+    }
+
+    /**
+     * Registers manifest classes. Classes already registered (like Kryo default registrations) are skipped.
+     */
+    public void register(Kryo kryo) {
+        for (int i = 0; i < classes.size(); i++) {
+            Class<?> cls = classes.get(i);
+            if (cls == null || kryo.getClassResolver().getRegistration(cls) != null)
+                continue;
+            Serializer<?> serializer = serializers.get(i);
+            if (serializer != null) {
+                kryo.register(cls, serializer, FIRST_ID + i);
+            } else {
+                kryo.register(cls, FIRST_ID + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package sqlg3.remote.kryo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of {@link com.esotericsoftware.kryo.Kryo} instances and buffers pools in {@link BaseKryoSerializer}.
+ */
+public final class KryoStats {
+
+    /**
+     * Number of {@link com.esotericsoftware.kryo.Kryo} instances taken from the pool
+     */
+    public final AtomicLong obtained = new AtomicLong();
+    /**
+     * Number of {@link com.esotericsoftware.kryo.Kryo} instances created (pool misses)
+     */
+    public final AtomicLong created = new AtomicLong();
+    /**
+     * Number of times pool limit was reached and caller had to wait
+     */
+    public final AtomicLong waits = new AtomicLong();
+    /**
+     * Total time in nanoseconds spent waiting for {@link com.esotericsoftware.kryo.Kryo} instance
+     */
+    public final AtomicLong waitTime = new AtomicLong();
+    /**
+     * Number of input/output buffers created (pool misses)
+     */
+    public final AtomicLong buffersCreated = new AtomicLong();
+    /**
+     * Number of times output buffer had to grow
+     */
+    public final AtomicLong bufferGrowths = new AtomicLong();
+
+    public String toString() {
+        return "obtained: " + obtained + ", created: " + created + ", waits: " + waits +
+               ", wait time: " + waitTime.get() / 1000000 + " ms, buffers created: " + buffersCreated +
+               ", buffer growths: " + bufferGrowths;
+    }
+}
@@ -14,11 +14,25 @@ import sqlg3.remote.server.IServerSerializer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Objects;
 
+/**
+ * Server side Kryo serializer. Pool of {@link Kryo} instances is not bounded: request threads are already limited
+ * by the servlet container, and a thread waiting for an instance held by a response to a slow client would block
+ * unrelated requests. Chunked result takes an instance only while writing each chunk.
+ */
 public class ServerKryoSerializer extends BaseKryoSerializer implements IServerSerializer {
 
     private static final HttpCommand[] COMMANDS = HttpCommand.values();
 
+    public ServerKryoSerializer(int poolSize, boolean directBuffers) {
+        super(poolSize, directBuffers, false);
+    }
+
+    public ServerKryoSerializer() {
+        this(DEFAULT_POOL_SIZE, false);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void serverToClient(InputStream is, ServerCall call, OutputStream os) throws IOException {
@@ -28,7 +42,9 @@ public class ServerKryoSerializer extends BaseKryoSerializer implements IServerS
         String method;
         Class<?>[] paramTypes;
         Object[] params;
-        Kryo kryo = getKryo();
+        String clientManifest = null;
+        // Kryo is not held during the call
+        Kryo kryo = obtainKryo();
         try (Input input = readData(count(is, true))) {
             id = kryo.readObject(input, HttpId.class);
             int commandIndex = input.readByte();
@@ -38,25 +54,53 @@ public class ServerKryoSerializer extends BaseKryoSerializer implements IServerS
             params = kryo.readObjectOrNull(input, Object[].class);
 
             command = COMMANDS[commandIndex];
+            if (command == HttpCommand.OPEN) {
+                clientManifest = input.readString();
+            }
         } catch (KryoException ex) {
             throw new UnrecoverableRemoteException(ex);
+        } finally {
+            freeKryo(kryo);
         }
 
         Object result = null;
         Throwable error = null;
-        try {
-            result = call.call(id, command, iface, method, paramTypes, params);
-        } catch (Throwable ex) {
-            error = ex;
+        String serverManifest = getManifestVersion();
+        if (command == HttpCommand.OPEN && !Objects.equals(clientManifest, serverManifest)) {
+            error = new UnrecoverableRemoteException(new IllegalStateException(
+                "Class manifest version on client (" + clientManifest + ") differs from server (" + serverManifest + ")"
+            ));
+        } else {
+            try {
+                result = call.call(id, command, iface, method, paramTypes, params);
+            } catch (Throwable ex) {
+                error = ex;
+            }
         }
-        writeResponse(kryo, os, result, error, method);
+        writeResponse(os, result, error, method);
     }
 
-    private void writeResponse(Kryo kryo, OutputStream os, Object result, Throwable error, String method) throws IOException {
+    private void writeResponse(OutputStream os, Object result, Throwable error, String method) throws IOException {
         boolean debug = isDebug(method);
         try (Output output = writeData(count(os, debug))) {
-            kryo.writeClassAndObject(output, result);
-            kryo.writeClassAndObject(output, error);
+            if (error == null && isChunked(result)) {
+                writeChunked(result, obj -> {
+                    Kryo chunkKryo = obtainKryo();
+                    try {
+                        chunkKryo.writeClassAndObject(output, obj);
+                    } finally {
+                        freeKryo(chunkKryo);
+                    }
+                });
+            } else {
+                Kryo kryo = obtainKryo();
+                try {
+                    kryo.writeClassAndObject(output, result);
+                    kryo.writeClassAndObject(output, error);
+                } finally {
+                    freeKryo(kryo);
+                }
+            }
         } catch (KryoException ex) {
             throw new UnrecoverableRemoteException(ex);
         }
@@ -65,8 +109,7 @@ public class ServerKryoSerializer extends BaseKryoSerializer implements IServerS
     @Override
     public void sendError(OutputStream os, Throwable error) throws IOException {
         try {
-            Kryo kryo = getKryo();
-            writeResponse(kryo, os, null, error, null);
+            writeResponse(os, null, error, null);
         } finally {
             os.close();
         }
@@ -1,5 +1,6 @@
 package sqlg3.remote.server;
 
+import sqlg3.core.IDBCommon;
 import sqlg3.core.ISimpleTransaction;
 import sqlg3.core.ITransaction;
 import sqlg3.remote.common.IRemoteDBInterface;
@@ -8,6 +9,8 @@ import sqlg3.remote.common.WatcherThread;
 import sqlg3.runtime.*;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 final class DBInterface implements IRemoteDBInterface {
@@ -23,6 +26,10 @@ final class DBInterface implements IRemoteDBInterface {
     final String sessionLongId;
 
     private final AtomicLong lastActive = new AtomicLong(getCurrentTime());
+    /**
+     * Interfaces with method tables sent to client, index is interface ID
+     */
+    private final List<Class<? extends IDBCommon>> interfaces = new ArrayList<>();
 
     DBInterface(String userLogin, String userHost,
                 SessionContext session, LocalConnectionFactory fact,
@@ -53,6 +60,24 @@ final class DBInterface implements IRemoteDBInterface {
         return new Transaction(global, session);
     }
 
+    int registerInterface(Class<? extends IDBCommon> iface) {
+        synchronized (interfaces) {
+            int index = interfaces.indexOf(iface);
+            if (index >= 0)
+                return index;
+            interfaces.add(iface);
+            return interfaces.size() - 1;
+        }
+    }
+
+    Class<? extends IDBCommon> getInterface(int interfaceId) {
+        synchronized (interfaces) {
+            if (interfaceId < 0 || interfaceId >= interfaces.size())
+                return null;
+            return interfaces.get(interfaceId);
+        }
+    }
+
     static long getCurrentTime() {
         return System.currentTimeMillis();
     }
@@ -1,10 +1,14 @@
 package sqlg3.remote.server;
 
+import sqlg3.core.CallBatch;
 import sqlg3.core.IDBCommon;
 import sqlg3.core.ISimpleTransaction;
 import sqlg3.core.ITransaction;
 import sqlg3.remote.common.*;
 import sqlg3.runtime.GlobalContext;
+import sqlg3.runtime.MethodInvoker;
+import sqlg3.runtime.SimpleTransaction;
+import sqlg3.runtime.Transaction;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,7 +16,10 @@ import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,6 +43,7 @@ public final class HttpDispatcher {
     private final ConcurrentMap<Long, ITransaction> transactions = new ConcurrentHashMap<>();
 
     private final AtomicLong transactionCount = new AtomicLong(0);
+    private final ConcurrentMap<MethodKey, Method> methodCache = new ConcurrentHashMap<>();
 
     private abstract static class HttpAction {
 
@@ -103,6 +111,17 @@ public final class HttpDispatcher {
                 return lw.getSessionInfo(db);
             }
         });
+        actions.put(HttpCommand.GET_METHOD_TABLE, new HttpAction(false) {
+            @SuppressWarnings("unchecked")
+            Object perform(HttpId id, String hostName, Object... params) {
+                DBInterface db = checkSession(id);
+                Class<? extends IDBCommon> iface = (Class<? extends IDBCommon>) params[0];
+                if (!IDBCommon.class.isAssignableFrom(iface))
+                    throw new RemoteException("Not a business interface: " + iface.getName());
+                int interfaceId = db.registerInterface(iface);
+                return MethodTable.create(interfaceId, iface);
+            }
+        });
         actions.put(HttpCommand.ROLLBACK, new HttpAction(true) {
             Object perform(HttpId id, String hostName, Object... params) throws SQLException {
                 if (id.transactionId == null)
@@ -133,6 +152,8 @@ public final class HttpDispatcher {
 
     public HttpDispatcher(String application, SessionFactory sessionFactory, SQLGLogger logger, GlobalContext global) {
         this.application = application;
+        // LOB streams are serialized after the call ends, so they should outlive the statement
+        global.detachLobs = true;
         this.lw = new LocalConnectionFactory(sessionFactory, logger, global, true);
         this.watcher = new WatcherThread(1, lw::checkActivity);
         this.watcher.runThread();
@@ -170,10 +191,89 @@ public final class HttpDispatcher {
         transactions.remove(id.transactionId);
     }
 
+    private static final class MethodKey {
+
+        final Class<?> iface;
+        final String method;
+        final Class<?>[] paramTypes;
+
+        MethodKey(Class<?> iface, String method, Class<?>[] paramTypes) {
+            this.iface = iface;
+            this.method = method;
+            this.paramTypes = paramTypes;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MethodKey))
+                return false;
+            MethodKey that = (MethodKey) obj;
+            return iface.equals(that.iface) && method.equals(that.method) && Arrays.equals(paramTypes, that.paramTypes);
+        }
+
+        public int hashCode() {
+            return (iface.hashCode() * 31 + method.hashCode()) * 31 + Arrays.hashCode(paramTypes);
+        }
+    }
+
+    /**
+     * Finds business interface method; results are cached since reflective lookup is slow.
+     */
+    private Method resolveMethod(Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes) throws NoSuchMethodException {
+        MethodKey key = new MethodKey(iface, method, paramTypes == null ? new Class<?>[0] : paramTypes);
+        Method resolved = methodCache.get(key);
+        if (resolved == null) {
+            if (!iface.isInterface() || !IDBCommon.class.isAssignableFrom(iface))
+                throw new RemoteException("Not a business interface: " + iface.getName());
+            resolved = iface.getMethod(method, key.paramTypes);
+            methodCache.putIfAbsent(key, resolved);
+        }
+        return resolved;
+    }
+
     private void log(Throwable ex) {
         lw.logger.error(ex);
     }
 
+    /**
+     * Executes batch of calls in order in one transaction: in user-managed transaction if it is specified,
+     * else in new transaction which is committed only if all calls succeed.
+     * All methods are resolved (and checked) before the first call, as for {@link HttpCommand#INVOKE}.
+     */
+    private List<CallBatch.Result> executeBatch(HttpId id, DBInterface db, List<CallBatch.Call> calls) throws SQLException, NoSuchMethodException {
+        List<Method> methods = new ArrayList<>(calls.size());
+        for (CallBatch.Call call : calls) {
+            methods.add(resolveMethod(call.iface, call.method, call.paramTypes));
+        }
+        List<CallBatch.Result> results;
+        if (id.transactionId != null) {
+            ITransaction transaction = transactions.get(id.transactionId);
+            if (transaction == null)
+                throw new RemoteException("Transaction inactive: " + id.transactionId);
+            if (transaction instanceof Transaction) {
+                results = ((Transaction) transaction).executeCalls(calls, methods);
+            } else {
+                results = CallBatch.executeCalls(transaction, calls);
+            }
+        } else {
+            if (db == null)
+                throw new RemoteException("Invalid session");
+            ISimpleTransaction t = db.getSimpleTransaction();
+            if (t instanceof SimpleTransaction) {
+                results = ((SimpleTransaction) t).executeBatch(calls, methods);
+            } else if (t instanceof CallBatch.Executor) {
+                results = ((CallBatch.Executor) t).executeBatch(calls);
+            } else {
+                results = CallBatch.executeCalls(t, calls);
+            }
+        }
+        for (CallBatch.Result result : results) {
+            if (result.error != null) {
+                log(result.error);
+            }
+        }
+        return results;
+    }
+
     public Object dispatch(HttpId id, HttpCommand command,
                            Class<? extends IDBCommon> iface, String method, Class<?>[] paramTypes, Object[] params,
                            String hostName) throws Throwable {
@@ -184,24 +284,49 @@ public final class HttpDispatcher {
             if (id.sessionId != null) {
                 db = checkSession(id);
             }
-            if (command == HttpCommand.INVOKE) {
-                Object impl;
+            if (command == HttpCommand.INVOKE || command == HttpCommand.INVOKE_BY_ID) {
+                Method toInvoke;
+                Object[] args;
+                if (command == HttpCommand.INVOKE_BY_ID) {
+                    if (db == null)
+                        throw new RemoteException("Invalid session");
+                    int methodId = (Integer) params[0];
+                    iface = db.getInterface(MethodTable.getInterfaceId(methodId));
+                    if (iface == null)
+                        throw new RemoteException("Unknown method ID: " + methodId);
+                    Method[] methods = MethodTable.getMethods(iface);
+                    int methodIndex = MethodTable.getMethodIndex(methodId);
+                    if (methodIndex >= methods.length)
+                        throw new RemoteException("Unknown method ID: " + methodId);
+                    toInvoke = methods[methodIndex];
+                    args = Arrays.copyOfRange(params, 1, params.length);
+                } else {
+                    toInvoke = resolveMethod(iface, method, paramTypes);
+                    args = params;
+                }
+                ISimpleTransaction t;
                 if (id.transactionId != null) {
-                    ITransaction transaction = transactions.get(id.transactionId);
-                    if (transaction == null)
+                    t = transactions.get(id.transactionId);
+                    if (t == null)
                         throw new RemoteException("Transaction inactive: " + id.transactionId);
-                    impl = transaction.getInterface(iface);
                 } else {
                     assert db != null;
-                    ISimpleTransaction t = db.getSimpleTransaction();
-                    impl = t.getInterface(iface);
+                    t = db.getSimpleTransaction();
                 }
-                Method toInvoke = impl.getClass().getMethod(method, paramTypes);
                 try {
-                    return toInvoke.invoke(impl, params);
+                    if (t instanceof MethodInvoker) {
+                        return ((MethodInvoker) t).invoke(iface, toInvoke, args);
+                    } else {
+                        return toInvoke.invoke(t.getInterface(iface), args);
+                    }
                 } catch (InvocationTargetException ex) {
                     invocationError = ex.getTargetException();
                 }
+            } else if (command == HttpCommand.BATCH) {
+                rethrowSqlExcepion = true;
+                @SuppressWarnings("unchecked")
+                List<CallBatch.Call> calls = (List<CallBatch.Call>) params[0];
+                return executeBatch(id, db, calls);
             } else {
                 HttpAction httpAction = actions.get(command);
                 rethrowSqlExcepion = httpAction.hasSqlException;
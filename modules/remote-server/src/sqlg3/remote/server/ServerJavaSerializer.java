@@ -41,8 +41,16 @@ public final class ServerJavaSerializer extends BaseJavaSerializer implements IS
     private void writeResponse(OutputStream os, Object result, Throwable error, String method) throws IOException {
         boolean debug = isDebug(method);
         try (ObjectOutputStream oos = writeData(count(os, debug))) {
-            oos.writeObject(result);
-            oos.writeObject(error);
+            if (error == null && isChunked(result)) {
+                writeChunked(result, obj -> {
+                    oos.writeObject(obj);
+                    // do not keep references to already written rows
+                    oos.reset();
+                });
+            } else {
+                oos.writeObject(result);
+                oos.writeObject(error);
+            }
         }
     }
 
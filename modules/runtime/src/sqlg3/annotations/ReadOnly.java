@@ -0,0 +1,16 @@
+package sqlg3.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for business methods (see {@link Business}) marking that given method does not modify data.
+ * Preprocessor marks such methods in data access interface with {@link sqlg3.core.ReadOnlyCall}, so they can be
+ * executed on read-only connections (see {@link sqlg3.runtime.ReadOnlyConnectionManager}).
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
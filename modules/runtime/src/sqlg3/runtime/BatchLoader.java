@@ -0,0 +1,121 @@
+package sqlg3.runtime;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Loads rows by keys coalescing individual requests into one query (solution for "N+1 queries" problem).
+ * Keys can be requested by {@link #request} beforehand; the first {@link #load} executes one query for
+ * all pending keys. Loaded rows (and missing keys) are memoized until the end of transaction.
+ * <p>
+ * Use {@link GBase#getBatchLoader} to obtain loader and {@link GBase#keyIn} to build query condition:
+ * <pre>
+ * BatchLoader&lt;Integer, EmpRow&gt; loader = getBatchLoader(
+ *     "emp", EmpRow::getId,
+ *     ids -&gt; multiRowQuery(prepareStatement(createQueryPiece("SELECT ... FROM EMP WHERE").add(keyIn("ID", ids, Integer.class))), EmpRow.class)
+ * );
+ * </pre>
+ *
+ * @param <K> key type
+ * @param <T> row type
+ */
+public final class BatchLoader<K, T> {
+
+    /**
+     * Maximum number of keys passed to one query
+     */
+    public static final int MAX_KEYS = 1000;
+
+    /**
+     * Query returning rows for given keys (in any order, missing keys are allowed)
+     */
+    public interface Query<K, T> {
+
+        List<T> query(List<K> keys) throws SQLException;
+    }
+
+    /**
+     * Transaction-scoped part of loader
+     */
+    static final class State<K, T> {
+
+        private final Map<K, T> loaded = new HashMap<>();
+        private final Set<K> pending = new LinkedHashSet<>();
+    }
+
+    private final State<K, T> state;
+    private final Function<T, K> keyOf;
+    private final Query<K, T> query;
+
+    BatchLoader(State<K, T> state, Function<T, K> keyOf, Query<K, T> query) {
+        this.state = state;
+        this.keyOf = keyOf;
+        this.query = query;
+    }
+
+    /**
+     * Adds key to the next batch without executing query.
+     */
+    public void request(K key) {
+        synchronized (state) {
+            if (!state.loaded.containsKey(key)) {
+                state.pending.add(key);
+            }
+        }
+    }
+
+    private void flush() throws SQLException {
+        List<K> keys = new ArrayList<>(state.pending);
+        state.pending.clear();
+        for (int start = 0; start < keys.size(); start += MAX_KEYS) {
+            List<K> chunk = keys.subList(start, Math.min(keys.size(), start + MAX_KEYS));
+            List<T> rows = query.query(chunk);
+            for (K key : chunk) {
+                state.loaded.put(key, null);
+            }
+            if (rows != null) {
+                for (T row : rows) {
+                    state.loaded.put(keyOf.apply(row), row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns row for key, executing one query for this key and all pending keys if row is not loaded yet.
+     *
+     * @return null if there is no row for the key
+     */
+    public T load(K key) throws SQLException {
+        synchronized (state) {
+            if (!state.loaded.containsKey(key)) {
+                state.pending.add(key);
+                flush();
+            }
+            return state.loaded.get(key);
+        }
+    }
+
+    /**
+     * Returns rows for keys in the same order (null for missing rows), using at most one query
+     * for not yet loaded keys (more if there are more than {@link #MAX_KEYS} keys).
+     */
+    public List<T> loadAll(Collection<K> keys) throws SQLException {
+        synchronized (state) {
+            for (K key : keys) {
+                if (!state.loaded.containsKey(key)) {
+                    state.pending.add(key);
+                }
+            }
+            if (!state.pending.isEmpty()) {
+                flush();
+            }
+            List<T> result = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                result.add(state.loaded.get(key));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package sqlg3.runtime;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Description of bulk load operation: target table, its columns and rows to be loaded.
+ * Rows are streamed from iterator, so they are not required to be all in memory at once.
+ *
+ * @see DBSpecific#bulkLoad(java.sql.Connection, RuntimeMapper, BulkLoad)
+ * @see DBSpecific#upsert(java.sql.Connection, RuntimeMapper, BulkLoad, String[])
+ */
+public final class BulkLoad {
+
+    public final String table;
+    public final String[] columns;
+    /**
+     * Java types of columns, used to find {@link TypeMapper} for column values
+     */
+    public final Class<?>[] types;
+    public final Iterator<Object[]> rows;
+    /**
+     * false if driver does not support JDBC batches (see {@link DBCapabilities#supportsBatchUpdates}),
+     * then rows are inserted one by one
+     */
+    public boolean batchUpdates = true;
+
+    /**
+     * Constructor.
+     *
+     * @param table table name
+     * @param columns table columns to load
+     * @param types Java types of columns
+     * @param rows rows to load, each row contains values for all columns in the same order as columns
+     */
+    public BulkLoad(String table, String[] columns, Class<?>[] types, Iterator<Object[]> rows) {
+        if (columns.length != types.length)
+            throw new IllegalArgumentException("Different number of columns (" + columns.length + ") and types (" + types.length + ")");
+        this.table = table;
+        this.columns = columns;
+        this.types = types;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns comma-separated list of columns.
+     */
+    public String getColumnList() {
+        return String.join(", ", columns);
+    }
+
+    /**
+     * Returns columns which are not in {@code keyColumns}.
+     *
+     * @param keyColumns key columns, should be a subset of {@link #columns}
+     */
+    public String[] getNonKeyColumns(String[] keyColumns) {
+        List<String> all = Arrays.asList(columns);
+        List<String> keys = Arrays.asList(keyColumns);
+        for (String key : keys) {
+            if (!all.contains(key))
+                throw new IllegalArgumentException("Key column " + key + " is not loaded");
+        }
+        return all.stream().filter(column -> !keys.contains(column)).toArray(String[]::new);
+    }
+
+    /**
+     * Returns INSERT statement for a single row.
+     */
+    public String getInsertSql() {
+        StringBuilder buf = new StringBuilder("INSERT INTO " + table + " (" + getColumnList() + ") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append("?");
+        }
+        buf.append(")");
+        return buf.toString();
+    }
+
+    /**
+     * Binds prepared statement parameters to row values using mappers.
+     *
+     * @param row row values
+     * @return number of parameters set
+     */
+    @SuppressWarnings("unchecked")
+    public int setRow(RuntimeMapper mappers, PreparedStatement stmt, Object[] row) throws SQLException {
+        int index = 1;
+        for (int i = 0; i < types.length; i++) {
+            TypeMapper<Object> mapper = (TypeMapper<Object>) mappers.getMapper(types[i]);
+            mapper.set(stmt, index, row[i]);
+            index += mapper.getStatementParameters();
+        }
+        return index - 1;
+    }
+}
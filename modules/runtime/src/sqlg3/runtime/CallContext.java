@@ -1,38 +1,141 @@
 package sqlg3.runtime;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.Blob;
+import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 final class CallContext {
 
+    /**
+     * Call of the current thread, set only if slow statements are detected (for static {@link GBase#executeUpdate})
+     */
+    private static final ThreadLocal<CallContext> CURRENT = new ThreadLocal<>();
+
     private final GlobalContext global;
+    final Method method;
+    private final RepeatedQueryDetector repeatedQueries;
+    private Map<String, int[]> sqlCounts = null;
 
     private Map<Statement, Parameter[]> statements = null;
+    /**
+     * Unparsed SQL of statements, only if slow statements are detected
+     */
+    private Map<Statement, String> statementSql = null;
+    /**
+     * Cancels statements of this call if it is one of concurrent queries and another one fails
+     */
+    private StatementCanceller canceller = null;
+    private List<PrefetchingRowFetcher<?>> fetchers = null;
+    private List<Object> lobs = null;
     private String lastSql = null;
     private Parameter[] lastParams = null;
     private boolean ok = false;
+    private final SlowStatementDetector slowStatements;
+    private final CallContext outer;
 
     private final long t0 = System.currentTimeMillis();
 
-    CallContext(GlobalContext global) {
+    CallContext(GlobalContext global, Method method) {
         this.global = global;
+        this.method = method;
+        this.repeatedQueries = global.repeatedQueries;
+        this.slowStatements = global.slowStatements;
+        if (slowStatements != null) {
+            this.outer = CURRENT.get();
+            CURRENT.set(this);
+        } else {
+            this.outer = null;
+        }
+    }
+
+    /**
+     * @return call of the current thread if slow statements are detected, else null
+     */
+    static CallContext current() {
+        return CURRENT.get();
+    }
+
+    private void countSql(String sql) {
+        if (sqlCounts == null) {
+            sqlCounts = new HashMap<>();
+        }
+        int[] count = sqlCounts.computeIfAbsent(sql, k -> new int[1]);
+        repeatedQueries.executed(method, sql, ++count[0]);
     }
 
     void setSql(String sql, Parameter[] params) {
+        if (repeatedQueries != null && sql != null) {
+            countSql(sql);
+        }
         lastSql = sql;
         lastParams = params;
     }
 
-    void statementCreated(Statement stmt, Parameter[] params) {
+    /**
+     * @param sql unparsed statement SQL, null if statement is not timed
+     */
+    void statementCreated(Statement stmt, String sql, Parameter[] params) {
         if (statements == null) {
             statements = new LinkedHashMap<>();
         }
         statements.put(stmt, params);
+        if (slowStatements != null && sql != null) {
+            if (statementSql == null) {
+                statementSql = new HashMap<>();
+            }
+            statementSql.put(stmt, sql);
+        }
+        if (canceller != null) {
+            canceller.register(stmt);
+        }
+    }
+
+    void setCanceller(StatementCanceller canceller) {
+        this.canceller = canceller;
+    }
+
+    /**
+     * Returns start time of statement execution for {@link #executeFinished}, or 0 if slow statements are not detected.
+     * Statement time is measured from execution to the end of fetching its results, so business logic
+     * between statements is not included.
+     */
+    long executeStarted() {
+        return slowStatements == null ? 0 : System.currentTimeMillis();
+    }
+
+    /**
+     * Reports time of statement created by {@link #statementCreated}.
+     *
+     * @param start value returned by {@link #executeStarted}
+     */
+    void executeFinished(Statement stmt, long start) {
+        if (start == 0 || statementSql == null)
+            return;
+        String sql = statementSql.get(stmt);
+        if (sql != null) {
+            executeFinished(sql, statements.get(stmt), start);
+        }
+    }
+
+    /**
+     * Reports time of statement not created by {@link #statementCreated}. Can be called from any thread.
+     *
+     * @param sql unparsed statement SQL
+     * @param start value returned by {@link #executeStarted}
+     */
+    void executeFinished(String sql, Parameter[] params, long start) {
+        if (start == 0)
+            return;
+        slowStatements.statementFinished(global, sql, params, System.currentTimeMillis() - start);
     }
 
     private void trace() {
@@ -59,6 +162,46 @@ final class CallContext {
         });
     }
 
+    void fetcherCreated(PrefetchingRowFetcher<?> fetcher) {
+        if (fetchers == null) {
+            fetchers = new ArrayList<>();
+        }
+        fetchers.add(fetcher);
+    }
+
+    void lobFetched(Object value) {
+        if (value instanceof LobStreams.LobResource || value instanceof Blob || value instanceof Clob) {
+            if (lobs == null) {
+                lobs = new ArrayList<>();
+            }
+            lobs.add(value);
+        }
+    }
+
+    private void releaseLobs() {
+        boolean detach = global.detachLobs;
+        for (Object lob : lobs) {
+            try {
+                if (lob instanceof LobStreams.LobResource) {
+                    LobStreams.LobResource resource = (LobStreams.LobResource) lob;
+                    if (detach) {
+                        resource.detach();
+                    }
+                    resource.free();
+                } else if (!detach) {
+                    if (lob instanceof Blob) {
+                        ((Blob) lob).free();
+                    } else if (lob instanceof Clob) {
+                        ((Clob) lob).free();
+                    }
+                }
+            } catch (IOException | SQLException | AbstractMethodError ex) {
+                // ignore
+            }
+        }
+        lobs = null;
+    }
+
     Parameter[] getParameters(Statement stmt) {
         return statements.get(stmt);
     }
@@ -85,9 +228,29 @@ final class CallContext {
     }
 
     void close() {
+        if (slowStatements != null) {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
         trace();
+        if (fetchers != null) {
+            // Background threads should not touch result sets after they are closed
+            for (PrefetchingRowFetcher<?> fetcher : fetchers) {
+                fetcher.cancel();
+            }
+            fetchers = null;
+        }
+        if (lobs != null) {
+            releaseLobs();
+        }
         if (statements != null) {
             for (Statement stmt : statements.keySet()) {
+                if (canceller != null) {
+                    canceller.unregister(stmt);
+                }
                 ResultSet rs = null;
                 try {
                     rs = stmt.getResultSet();
@@ -99,7 +262,9 @@ final class CallContext {
             statements.clear();
             statements = null;
         }
+        statementSql = null;
         lastSql = null;
         lastParams = null;
+        sqlCounts = null;
     }
 }
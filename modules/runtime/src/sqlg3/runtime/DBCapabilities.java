@@ -0,0 +1,73 @@
+package sqlg3.runtime;
+
+import sqlg3.runtime.queries.QueryParser;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.function.Function;
+
+/**
+ * Database and driver capabilities. They are read from {@link DatabaseMetaData} only once
+ * (see {@link GlobalContext#getCapabilities}), because some metadata methods require server round trip.
+ */
+public final class DBCapabilities {
+
+    /**
+     * Converts unquoted identifier to the case used by database to store identifiers
+     */
+    public final Function<String, String> canonicalizer;
+    public final boolean supportsBatchUpdates;
+    public final boolean supportsGeneratedKeys;
+    /**
+     * true if database has SQL ARRAY types
+     */
+    public final boolean supportsArrays;
+    public final String productName;
+    public final String productVersion;
+    public final int majorVersion;
+    public final int minorVersion;
+    public final String driverName;
+    public final String driverVersion;
+
+    public DBCapabilities(Function<String, String> canonicalizer,
+                          boolean supportsBatchUpdates, boolean supportsGeneratedKeys, boolean supportsArrays,
+                          String productName, String productVersion, int majorVersion, int minorVersion,
+                          String driverName, String driverVersion) {
+        this.canonicalizer = canonicalizer;
+        this.supportsBatchUpdates = supportsBatchUpdates;
+        this.supportsGeneratedKeys = supportsGeneratedKeys;
+        this.supportsArrays = supportsArrays;
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.majorVersion = majorVersion;
+        this.minorVersion = minorVersion;
+        this.driverName = driverName;
+        this.driverVersion = driverVersion;
+    }
+
+    private static boolean hasArrayType(DatabaseMetaData meta) throws SQLException {
+        try (ResultSet rs = meta.getTypeInfo()) {
+            while (rs.next()) {
+                if (rs.getInt(2) == Types.ARRAY)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public static DBCapabilities read(DatabaseMetaData meta) throws SQLException {
+        return new DBCapabilities(
+            QueryParser.getCanonicalizer(meta),
+            meta.supportsBatchUpdates(), meta.supportsGetGeneratedKeys(), hasArrayType(meta),
+            meta.getDatabaseProductName(), meta.getDatabaseProductVersion(),
+            meta.getDatabaseMajorVersion(), meta.getDatabaseMinorVersion(),
+            meta.getDriverName(), meta.getDriverVersion()
+        );
+    }
+
+    public String toString() {
+        return productName + " " + productVersion + " (" + driverName + " " + driverVersion + ")";
+    }
+}
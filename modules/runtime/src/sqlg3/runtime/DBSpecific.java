@@ -2,6 +2,7 @@ package sqlg3.runtime;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Database-specific operations interface.
@@ -14,4 +15,78 @@ public interface DBSpecific {
      * @param sequence sequence name
      */
     long getNextId(Connection conn, String sequence) throws SQLException;
+
+    /**
+     * Loads rows into table using the fastest way available for the database.
+     *
+     * @param mappers mappers used to encode column values
+     * @param load table, columns and rows to load
+     * @return number of loaded rows
+     */
+    long bulkLoad(Connection conn, RuntimeMapper mappers, BulkLoad load) throws SQLException;
+
+    /**
+     * Returns single-row statement which inserts row or updates non-key columns if row with the same key exists.
+     *
+     * @param keyColumns columns which identify row (should have unique constraint)
+     */
+    String getUpsertSql(BulkLoad load, String[] keyColumns) throws SQLException;
+
+    /**
+     * Inserts or updates rows (see {@link #getUpsertSql}) sending them to the database in batches.
+     *
+     * @param mappers mappers used to encode column values
+     * @param load table, columns and rows to insert or update
+     * @param keyColumns columns which identify row
+     * @return number of processed rows
+     */
+    long upsert(Connection conn, RuntimeMapper mappers, BulkLoad load, String[] keyColumns) throws SQLException;
+
+    /**
+     * Returns execution plan of statement without executing it.
+     *
+     * @param mappers mappers used to encode parameter values
+     * @param params statement parameters (some databases ignore parameter values when building plan)
+     * @return plan lines
+     */
+    List<String> explain(Connection conn, RuntimeMapper mappers, String sql, Parameter[] params) throws SQLException;
+
+    /**
+     * Exports snapshot of the current transaction, so other connections can see exactly the same data
+     * (see {@link #importSnapshot}). Snapshot is valid while exporting transaction is open.
+     *
+     * @return snapshot identifier
+     */
+    String exportSnapshot(Connection conn) throws SQLException;
+
+    /**
+     * Starts transaction using snapshot exported by {@link #exportSnapshot}.
+     * Should be called before any other statement in the transaction.
+     */
+    void importSnapshot(Connection conn, String snapshot) throws SQLException;
+
+    /**
+     * Returns true if transaction failed because of concurrency conflict (serialization failure or deadlock)
+     * and can succeed if retried.
+     *
+     * @see sqlg3.core.RetryPolicy
+     */
+    boolean isRetryable(SQLException ex);
+
+    /**
+     * Limits number of rows returned by query.
+     *
+     * @param sql query (possibly with ORDER BY clause)
+     * @param limit maximum number of rows
+     */
+    String getLimitSql(String sql, int limit);
+
+    /**
+     * Returns condition selecting rows with key greater than given key in lexicographic order
+     * (used for keyset pagination).
+     *
+     * @param keyColumns key columns
+     * @param lastKey values of key columns
+     */
+    QueryPiece getKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey);
 }
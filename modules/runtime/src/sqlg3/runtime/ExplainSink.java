@@ -0,0 +1,32 @@
+package sqlg3.runtime;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Receives execution plans of slow statements captured by {@link SlowStatementDetector}.
+ * Invoked from detector thread.
+ */
+public interface ExplainSink {
+
+    static ExplainSink createDefault(Consumer<String> logger) {
+        return (sql, params, time, plan) -> {
+            logger.accept("Slow SQL (" + time + " ms):");
+            logger.accept(sql);
+            if (params != null) {
+                logger.accept("with params " + params);
+            }
+            for (String line : plan) {
+                logger.accept(line);
+            }
+        };
+    }
+
+    /**
+     * @param sql statement text
+     * @param params statement parameters as text, null if statement has no parameters
+     * @param time statement time in milliseconds
+     * @param plan execution plan lines or error message if plan cannot be captured
+     */
+    void slowStatement(String sql, String params, long time, List<String> plan);
+}
@@ -0,0 +1,94 @@
+package sqlg3.runtime;
+
+import sqlg3.core.MetaColumn;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * For internal use.
+ * Fetches row type instances from one result set. Everything which does not depend on the row
+ * (mappers lookup, result set metadata and its validation) is done once on creation.
+ */
+final class FetchPlan<T> {
+
+    private final RowTypeFactory<T> factory;
+    private final TypeMapper<?>[] mappers;
+    private final ResultSetMetaData rsmd;
+    /**
+     * Not null if row type has large object fields which should be released on call end
+     */
+    private final CallContext lobOwner;
+
+    private static boolean isLob(Class<?> type) {
+        return Blob.class.equals(type) || Clob.class.equals(type) ||
+               java.io.InputStream.class.equals(type) || java.io.Reader.class.equals(type);
+    }
+
+    /**
+     * @param check true to validate result set columns against row type fields
+     * @param call context which releases fetched large objects on close, null if they are released
+     *             at the end of transaction
+     */
+    FetchPlan(RowTypeFactory<T> factory, RuntimeMapper mappers, ResultSet rs, boolean check, CallContext call) throws SQLException {
+        this.factory = factory;
+        boolean hasLobs = false;
+        for (Class<?> type : factory.types) {
+            hasLobs |= isLob(type);
+        }
+        this.lobOwner = hasLobs ? call : null;
+        if (factory.meta) {
+            this.mappers = null;
+        } else {
+            this.mappers = new TypeMapper<?>[factory.types.length];
+            for (int i = 0; i < factory.types.length; i++) {
+                this.mappers[i] = mappers.getMapper(factory.types[i]);
+            }
+        }
+        if (factory.meta || check) {
+            this.rsmd = rs.getMetaData();
+            if (check) {
+                factory.check(rsmd, this.mappers);
+            }
+        } else {
+            this.rsmd = null;
+        }
+    }
+
+    private static MetaColumn fetchMeta(ResultSetMetaData rsmd, int index) throws SQLException {
+        return new MetaColumn(
+            rsmd.isNullable(index) == ResultSetMetaData.columnNoNulls,
+            rsmd.getColumnDisplaySize(index), rsmd.getPrecision(index), rsmd.getScale(index)
+        );
+    }
+
+    /**
+     * Creates row type instance from the current row of result set.
+     */
+    T fetch(ResultSet rs) throws SQLException {
+        int fieldCount = factory.types.length;
+        Object[] values = new Object[fieldCount];
+        int index = 1;
+        if (mappers == null) {
+            for (int i = 0; i < fieldCount; i++) {
+                values[i] = fetchMeta(rsmd, index);
+                index++;
+            }
+        } else {
+            for (int i = 0; i < fieldCount; i++) {
+                TypeMapper<?> mapper = mappers[i];
+                values[i] = mapper.fetch(rs, index);
+                index += mapper.getResultSetColumns();
+            }
+            if (lobOwner != null) {
+                for (Object value : values) {
+                    lobOwner.lobFetched(value);
+                }
+            }
+        }
+        return factory.newInstance(values);
+    }
+}
@@ -6,10 +6,11 @@ import sqlg3.core.SQLGException;
 import sqlg3.runtime.queries.QueryParser;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Base class for all classes which are processed by preprocessor. Wraps access to JDBC methods allowing
@@ -50,7 +51,7 @@ public class GBase implements ISimpleTransaction {
     }
 
     private Connection getConnection() throws SQLException {
-        return ctx.transaction.getConnection();
+        return ctx.transaction.getConnection(ctx.readOnly, ctx.shard);
     }
 
     /**
@@ -95,6 +96,41 @@ public class GBase implements ISimpleTransaction {
         return new QueryPiece(sql, params);
     }
 
+    /**
+     * Creates condition {@code column IN (?, ...)} for list of keys.
+     * Number of parameters is rounded up to the power of two (repeating the last key),
+     * so the number of distinct statements stays small.
+     *
+     * @param column column name
+     * @param keys key values (not more than {@link BatchLoader#MAX_KEYS})
+     * @param cls key class
+     */
+    public static <K> QueryPiece keyIn(String column, Collection<K> keys, Class<K> cls) {
+        if (keys.isEmpty())
+            return createQueryPiece("1 = 0");
+        int count = 1;
+        while (count < keys.size()) {
+            count *= 2;
+        }
+        count = Math.max(keys.size(), Math.min(count, BatchLoader.MAX_KEYS));
+        StringBuilder buf = new StringBuilder(column).append(" IN (");
+        Parameter[] params = new Parameter[count];
+        Iterator<K> i = keys.iterator();
+        K key = null;
+        for (int j = 0; j < count; j++) {
+            if (j > 0) {
+                buf.append(", ");
+            }
+            buf.append('?');
+            if (i.hasNext()) {
+                key = i.next();
+            }
+            params[j] = in(key, cls);
+        }
+        buf.append(')');
+        return createQueryPiece(buf, params);
+    }
+
     ///////////////////////////////// Statement preparation /////////////////////////////////
 
     private interface StatementFactory<T extends PreparedStatement> {
@@ -102,13 +138,14 @@ public class GBase implements ISimpleTransaction {
         T create(Connection connection, String sql) throws SQLException;
     }
 
-    private <T extends PreparedStatement> T doPrepareAnyStatement(String sql, Parameter[] params, StatementFactory<T> factory) throws SQLException {
+    private <T extends PreparedStatement> T doPrepareAnyStatement(String unparsedSql, String sql, Parameter[] params,
+                                                                  StatementFactory<T> factory) throws SQLException {
         Connection connection = getConnection();
         T stmt = factory.create(connection, sql);
         if (test != null) {
             test.statementCreated(stmt, sql);
         }
-        ctx.call.statementCreated(stmt, params);
+        ctx.call.statementCreated(stmt, unparsedSql, params);
         Parameter.setParameters(ctx.global.mappers, stmt, params);
         return stmt;
     }
@@ -117,12 +154,11 @@ public class GBase implements ISimpleTransaction {
         setSql(unparsedSql, params);
         String parsedSql = QueryParser.parseQuery(unparsedSql);
         if (autoKeys == null) {
-            return doPrepareAnyStatement(parsedSql, params, Connection::prepareStatement);
+            return doPrepareAnyStatement(unparsedSql, parsedSql, params, Connection::prepareStatement);
         } else {
-            return doPrepareAnyStatement(parsedSql, params, (connection, sql) -> {
+            return doPrepareAnyStatement(unparsedSql, parsedSql, params, (connection, sql) -> {
                 if (autoKeys.length > 0) {
-                    DatabaseMetaData meta = connection.getMetaData();
-                    Function<String, String> canonicalizer = QueryParser.getCanonicalizer(meta);
+                    Function<String, String> canonicalizer = ctx.global.getCapabilities(connection).canonicalizer;
                     String[] autoColumns = new String[autoKeys.length];
                     for (int i = 0; i < autoKeys.length; i++) {
                         autoColumns[i] = canonicalizer.apply(autoKeys[i]);
@@ -223,7 +259,8 @@ public class GBase implements ISimpleTransaction {
      */
     public final CallableStatement prepareCall(String sql, Parameter... params) throws SQLException {
         setSql(sql, params);
-        return doPrepareAnyStatement(sql, params, Connection::prepareCall);
+        // Calls are not timed for slow statement detection: there is no plan to EXPLAIN
+        return doPrepareAnyStatement(null, sql, params, Connection::prepareCall);
     }
 
     public final CallableStatement prepareCall(QueryPiece query) throws SQLException {
@@ -338,6 +375,7 @@ public class GBase implements ISimpleTransaction {
 
     private <T> T singleOrOptionalRowQueryReturningT(Class<T> cls, PreparedStatement stmt, boolean optional) throws SQLException {
         TypeMapper<T> mapper = getMapper(cls);
+        long start = ctx.call.executeStarted();
         try (ResultSet rs = stmt.executeQuery()) {
             if (test != null) {
                 test.checkOneColumn(rs, cls);
@@ -347,8 +385,11 @@ public class GBase implements ISimpleTransaction {
                     return null;
                 T ret = mapper.fetch(rs, 1);
                 tooManyRows(rs);
+                ctx.call.lobFetched(ret);
                 return ret;
             }
+        } finally {
+            ctx.call.executeFinished(stmt, start);
         }
     }
 
@@ -418,14 +459,19 @@ public class GBase implements ISimpleTransaction {
     public final <T> List<T> columnOf(Class<T> cls, PreparedStatement stmt) throws SQLException {
         TypeMapper<T> mapper = getMapper(cls);
         List<T> list = new ArrayList<>();
+        long start = ctx.call.executeStarted();
         try (ResultSet rs = stmt.executeQuery()) {
             if (test != null) {
                 test.checkOneColumn(rs, cls);
             } else {
                 while (rs.next()) {
-                    list.add(mapper.fetch(rs, 1));
+                    T value = mapper.fetch(rs, 1);
+                    ctx.call.lobFetched(value);
+                    list.add(value);
                 }
             }
+        } finally {
+            ctx.call.executeFinished(stmt, start);
         }
         return list;
     }
@@ -475,11 +521,11 @@ public class GBase implements ISimpleTransaction {
     ///////////////////////////////// Class statements /////////////////////////////////
 
     private <T> T fetchFromResultSet(Class<T> rowType, ResultSet rs, boolean meta) throws SQLException {
-        RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, meta);
-        return factory.fetch(ctx.global.mappers, rs);
+        return ctx.global.getFetchPlan(rowType, rs, meta, ctx.call).fetch(rs);
     }
 
     private <T> T singleOrOptionalRowQuery(PreparedStatement stmt, boolean optional, Class<T> rowType) throws SQLException {
+        long start = ctx.call.executeStarted();
         try (ResultSet rs = stmt.executeQuery()) {
             boolean meta = false;
             if (test != null) {
@@ -492,6 +538,8 @@ public class GBase implements ISimpleTransaction {
                 tooManyRows(rs);
                 return ret;
             }
+        } finally {
+            ctx.call.executeFinished(stmt, start);
         }
     }
 
@@ -526,17 +574,20 @@ public class GBase implements ISimpleTransaction {
      */
     public final <T> List<T> multiRowQuery(PreparedStatement stmt, Class<T> rowType) throws SQLException {
         List<T> result = new ArrayList<>();
+        long start = ctx.call.executeStarted();
         try (ResultSet rs = stmt.executeQuery()) {
             boolean meta = false;
             if (test != null) {
                 test.getRowTypeFields(rowType, rs, meta);
             } else {
-                RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, meta);
+                FetchPlan<T> plan = ctx.global.getFetchPlan(rowType, rs, meta, ctx.call);
                 while (rs.next()) {
-                    T row = factory.fetch(ctx.global.mappers, rs);
+                    T row = plan.fetch(rs);
                     result.add(row);
                 }
             }
+        } finally {
+            ctx.call.executeFinished(stmt, start);
         }
         return result;
     }
@@ -558,8 +609,11 @@ public class GBase implements ISimpleTransaction {
      * Returns query ResultSet metadata as RowType object.
      */
     public final <T> T metaRowQuery(PreparedStatement stmt, Class<T> rowType) throws SQLException {
+        long start = ctx.call.executeStarted();
         try (ResultSet rs = stmt.executeQuery()) {
             return metaRowQuery(rs, rowType);
+        } finally {
+            ctx.call.executeFinished(stmt, start);
         }
     }
 
@@ -582,7 +636,15 @@ public class GBase implements ISimpleTransaction {
             test.checkSql(stmt);
             return 0;
         } else {
-            return stmt.executeUpdate();
+            CallContext call = CallContext.current();
+            long start = call == null ? 0 : call.executeStarted();
+            try {
+                return stmt.executeUpdate();
+            } finally {
+                if (call != null) {
+                    call.executeFinished(stmt, start);
+                }
+            }
         }
     }
 
@@ -619,6 +681,563 @@ public class GBase implements ISimpleTransaction {
         return getGeneratedKeys(ps)[0].longValue();
     }
 
+    ///////////////////////////////// Bulk load /////////////////////////////////
+
+    /**
+     * @param keyColumns null for plain load, not null for upsert
+     */
+    private long doBulkLoad(BulkLoad load, String[] keyColumns) throws SQLException {
+        DBSpecific db = ctx.global.db;
+        String sql = keyColumns == null ? load.getInsertSql() : db.getUpsertSql(load, keyColumns);
+        if (test != null) {
+            PreparedStatement stmt = prepareStatement(sql);
+            test.checkSql(stmt);
+            return 0;
+        }
+        setSql(sql, null);
+        Connection connection = getConnection();
+        load.batchUpdates = ctx.global.getCapabilities(connection).supportsBatchUpdates;
+        if (keyColumns == null) {
+            return db.bulkLoad(connection, ctx.global.mappers, load);
+        } else {
+            return db.upsert(connection, ctx.global.mappers, load, keyColumns);
+        }
+    }
+
+    private <T> BulkLoad rowTypeLoad(String table, String[] columns, Class<T> rowType, Iterable<T> rows) {
+        if (test != null) {
+            // Row type can be not generated yet, only SQL is checked
+            return new BulkLoad(table, columns, new Class<?>[columns.length], null);
+        }
+        RowTypeFields fields = ctx.global.getRowTypeFields(rowType);
+        if (fields.names.length != columns.length) {
+            throw new SQLGException(
+                "Different number of columns (" + columns.length + ") and fields of " + rowType.getCanonicalName() + " (" + fields.names.length + ")"
+            );
+        }
+        Iterator<T> iterator = rows.iterator();
+        Iterator<Object[]> values = new Iterator<Object[]>() {
+
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public Object[] next() {
+                return fields.getValues(iterator.next());
+            }
+        };
+        return new BulkLoad(table, columns, fields.types, values);
+    }
+
+    /**
+     * Loads large number of rows into table using the fastest database-specific way
+     * (see {@link DBSpecific#bulkLoad}), for example, COPY for PostgreSQL.
+     * Rows are read from iterator one by one and are not stored in memory.
+     * Example:
+     * <pre>
+     * bulkLoad("log", new String[] {"id", "message"}, new Class[] {Long.class, String.class}, rows);
+     * </pre>
+     *
+     * @param table   table name
+     * @param columns table columns to load
+     * @param types   Java types of column values (see {@link RuntimeMapper})
+     * @param rows    rows, each row contains values for all columns in the same order as columns
+     * @return number of loaded rows
+     */
+    public final long bulkLoad(String table, String[] columns, Class<?>[] types, Iterable<Object[]> rows) throws SQLException {
+        return doBulkLoad(new BulkLoad(table, columns, types, rows.iterator()), null);
+    }
+
+    /**
+     * Same as {@link #bulkLoad(String, String[], Class[], Iterable)} but takes rows as row type objects.
+     * Row type fields are loaded to the columns in the same order.
+     *
+     * @param table   table name
+     * @param columns table columns to load, one column for each row type field
+     * @param rowType row type class or interface generated by preprocessor
+     * @param rows    rows to load
+     * @return number of loaded rows
+     */
+    public final <T> long bulkLoad(String table, String[] columns, Class<T> rowType, Iterable<T> rows) throws SQLException {
+        return doBulkLoad(rowTypeLoad(table, columns, rowType, rows), null);
+    }
+
+    /**
+     * Inserts rows or updates existing rows with the same key in one statement per row
+     * (see {@link DBSpecific#getUpsertSql}), so no separate query is required to check if row exists.
+     * Rows are sent to the database in batches.
+     * Example:
+     * <pre>
+     * upsert("price", new String[] {"item_id"}, new String[] {"item_id", "price"}, new Class[] {Long.class, Double.class}, rows);
+     * </pre>
+     *
+     * @param table      table name
+     * @param keyColumns columns which identify row (should have unique constraint), subset of {@code columns}
+     * @param columns    table columns to insert or update
+     * @param types      Java types of column values (see {@link RuntimeMapper})
+     * @param rows       rows, each row contains values for all columns in the same order as columns
+     * @return number of processed rows
+     */
+    public final long upsert(String table, String[] keyColumns, String[] columns, Class<?>[] types, Iterable<Object[]> rows) throws SQLException {
+        return doBulkLoad(new BulkLoad(table, columns, types, rows.iterator()), keyColumns);
+    }
+
+    /**
+     * Same as {@link #upsert(String, String[], String[], Class[], Iterable)} but takes rows as row type objects.
+     * Row type fields are stored to the columns in the same order.
+     *
+     * @param table      table name
+     * @param keyColumns columns which identify row (should have unique constraint), subset of {@code columns}
+     * @param columns    table columns to insert or update, one column for each row type field
+     * @param rowType    row type class or interface generated by preprocessor
+     * @param rows       rows to insert or update
+     * @return number of processed rows
+     */
+    public final <T> long upsert(String table, String[] keyColumns, String[] columns, Class<T> rowType, Iterable<T> rows) throws SQLException {
+        return doBulkLoad(rowTypeLoad(table, columns, rowType, rows), keyColumns);
+    }
+
+    ///////////////////////////////// Keyset pagination /////////////////////////////////
+
+    private QueryPiece getPageQuery(QueryPiece query, String[] keyColumns, Parameter[] lastKey, int pageSize) {
+        QueryBuilder buf = new QueryBuilder("SELECT * FROM (");
+        buf.append(query);
+        buf.append(") q");
+        if (lastKey != null) {
+            buf.append(createQueryPiece("WHERE"));
+            buf.append(ctx.global.db.getKeyGreaterCondition(keyColumns, lastKey));
+        }
+        buf.append("ORDER BY " + String.join(", ", keyColumns));
+        QueryPiece ordered = buf.toQuery();
+        return new QueryPiece(ctx.global.db.getLimitSql(ordered.sql, pageSize), ordered.data);
+    }
+
+    private final class PageIterator<T> implements Iterator<List<T>> {
+
+        private final QueryPiece query;
+        private final String[] keyColumns;
+        private final Class<?>[] keyTypes;
+        private final int pageSize;
+        private final Class<T> rowType;
+
+        private Parameter[] lastKey = null;
+        private List<T> next = null;
+        private boolean finished = false;
+
+        PageIterator(QueryPiece query, String[] keyColumns, Class<?>[] keyTypes, int pageSize, Class<T> rowType) {
+            this.query = query;
+            this.keyColumns = keyColumns;
+            this.keyTypes = keyTypes;
+            this.pageSize = pageSize;
+            this.rowType = rowType;
+        }
+
+        private List<T> fetchPage() throws SQLException {
+            QueryPiece page = getPageQuery(query, keyColumns, lastKey, pageSize);
+            setSql(page.sql, page.data);
+            List<T> rows = new ArrayList<>(pageSize);
+            try (PreparedStatement stmt = getConnection().prepareStatement(QueryParser.parseQuery(page.sql))) {
+                Parameter.setParameters(ctx.global.mappers, stmt, page.data);
+                long start = ctx.call.executeStarted();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    FetchPlan<T> plan = null;
+                    while (rs.next()) {
+                        if (plan == null) {
+                            plan = ctx.global.getFetchPlan(rowType, rs, false, ctx.call);
+                        }
+                        rows.add(plan.fetch(rs));
+                        if (rows.size() >= pageSize) {
+                            Parameter[] key = new Parameter[keyColumns.length];
+                            for (int i = 0; i < keyColumns.length; i++) {
+                                Class<?> keyType = keyTypes[i];
+                                Object value = getMapper(keyType).fetch(rs, rs.findColumn(keyColumns[i]));
+                                key[i] = Parameter.in(value, keyType);
+                            }
+                            lastKey = key;
+                        }
+                    }
+                } finally {
+                    ctx.call.executeFinished(page.sql, page.data, start);
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = fetchPage();
+                } catch (SQLException ex) {
+                    throw new SQLGException("Error fetching page", ex);
+                }
+                if (next.size() < pageSize) {
+                    finished = true;
+                }
+                if (next.isEmpty()) {
+                    next = null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            List<T> page = next;
+            next = null;
+            return page;
+        }
+    }
+
+    /**
+     * Reads query results page by page using keyset pagination: each page is selected by a separate
+     * query with condition on key greater than the last key of previous page, ordered by key and limited
+     * to page size. Unlike offset pagination, cost of page does not depend on its position.
+     * Pages are fetched lazily when stream is consumed; SQL errors are wrapped in {@link SQLGException}.
+     * Stream should be consumed inside the DAO method: if it is returned, it is read to the end before the call ends.
+     * At preprocess time only the first page query is checked.
+     * Example:
+     * <pre>
+     * keysetPages(createQueryPiece("SELECT ID, NAME FROM EMP"), new String[] {"ID"}, new Class&lt;?&gt;[] {Integer.class}, 1000, EmpRow.class)
+     *     .forEach(page -&gt; export(page));
+     * </pre>
+     *
+     * @param query base query; key columns should be unique and present in its select list
+     * @param keyColumns key column names
+     * @param keyTypes key column classes
+     * @param pageSize maximum number of rows in page
+     * @param rowType row type class
+     */
+    public final <T> Stream<List<T>> keysetPages(QueryPiece query, String[] keyColumns, Class<?>[] keyTypes,
+                                                 int pageSize, Class<T> rowType) throws SQLException {
+        if (test != null) {
+            List<T> page = multiRowQuery(prepareStatement(getPageQuery(query, keyColumns, null, pageSize)), rowType);
+            return Stream.of(page);
+        }
+        Iterator<List<T>> pages = new PageIterator<>(query, keyColumns, keyTypes, pageSize, rowType);
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false
+        );
+    }
+
+    ///////////////////////////////// Partitioned queries /////////////////////////////////
+
+    private <T> List<T> queryPartition(Connection conn, String snapshot, QueryPiece query, Class<T> rowType,
+                                       StatementCanceller canceller) throws SQLException {
+        if (snapshot != null) {
+            ctx.global.db.importSnapshot(conn, snapshot);
+        }
+        List<T> result = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(QueryParser.parseQuery(query.sql))) {
+            canceller.register(stmt);
+            try {
+                Parameter.setParameters(ctx.global.mappers, stmt, query.data);
+                long start = ctx.call.executeStarted();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    FetchPlan<T> plan = null;
+                    while (rs.next()) {
+                        if (plan == null) {
+                            plan = ctx.global.getFetchPlan(rowType, rs, false, null);
+                        }
+                        result.add(plan.fetch(rs));
+                    }
+                } finally {
+                    ctx.call.executeFinished(query.sql, query.data, start);
+                }
+            } finally {
+                canceller.unregister(stmt);
+            }
+        }
+        return result;
+    }
+
+    private <T> List<T> runPartition(String snapshot, QueryPiece query, Class<T> rowType,
+                                     StatementCanceller canceller) throws SQLException {
+        ConnectionManager cman = ctx.session.cman;
+        Connection conn = ctx.transaction.allocSeparateConnection(ctx.shard);
+        try {
+            // Snapshot import can change isolation level, it should not leak to other users of pooled connection
+            int isolation = conn.getTransactionIsolation();
+            try {
+                return queryPartition(conn, snapshot, query, rowType, canceller);
+            } finally {
+                try {
+                    cman.rollback(conn);
+                } finally {
+                    if (conn.getTransactionIsolation() != isolation) {
+                        conn.setTransactionIsolation(isolation);
+                    }
+                }
+            }
+        } finally {
+            cman.releaseConnection(conn);
+        }
+    }
+
+    private static <T> List<T> mergeOrdered(List<List<T>> parts, Comparator<? super T> order) {
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        List<T> result = new ArrayList<>(total);
+        PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<>(
+            Math.max(1, parts.size()), (i1, i2) -> order.compare(i1.head, i2.head)
+        );
+        for (List<T> part : parts) {
+            Iterator<T> i = part.iterator();
+            if (i.hasNext()) {
+                heads.add(new PeekingIterator<>(i));
+            }
+        }
+        while (!heads.isEmpty()) {
+            PeekingIterator<T> i = heads.poll();
+            result.add(i.head);
+            if (i.advance()) {
+                heads.add(i);
+            }
+        }
+        return result;
+    }
+
+    private static final class PeekingIterator<T> {
+
+        private final Iterator<T> iterator;
+        T head;
+
+        PeekingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        boolean advance() {
+            if (iterator.hasNext()) {
+                head = iterator.next();
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Executes query split into partitions concurrently, each partition on its own connection
+     * from the session connection manager, and merges results.
+     * Example:
+     * <pre>
+     * List&lt;EmpRow&gt; rows = partitionedQuery(
+     *     Partitioning.byMod("ID", 4),
+     *     cond -&gt; createQueryPiece("SELECT ... FROM EMP WHERE").add(cond).add("ORDER BY ID"),
+     *     EmpRow.class, Comparator.comparing(EmpRow::getId), false
+     * );
+     * </pre>
+     * At preprocess time only the first partition query is checked.
+     *
+     * @param partitioning partition conditions
+     * @param query creates partition query from partition condition
+     * @param rowType row type class
+     * @param order if not null then partition queries should return rows in this order and results are merged
+     *              preserving it; if null then results are concatenated in partition order
+     * @param snapshot true if all partitions should see data from the snapshot of the current transaction
+     *                 (see {@link DBSpecific#exportSnapshot})
+     */
+    public final <T> List<T> partitionedQuery(Partitioning partitioning, Function<QueryPiece, QueryPiece> query,
+                                              Class<T> rowType, Comparator<? super T> order,
+                                              boolean snapshot) throws SQLException {
+        List<QueryPiece> conditions = partitioning.getConditions();
+        if (test != null) {
+            return multiRowQuery(prepareStatement(query.apply(conditions.get(0))), rowType);
+        }
+        List<QueryPiece> queries = new ArrayList<>(conditions.size());
+        for (QueryPiece condition : conditions) {
+            queries.add(query.apply(condition));
+        }
+        QueryPiece first = queries.get(0);
+        setSql(first.sql, first.data);
+        String snapshotId = snapshot ? ctx.global.db.exportSnapshot(getConnection()) : null;
+        StatementCanceller canceller = new StatementCanceller();
+        List<Callable<List<T>>> tasks = new ArrayList<>(queries.size());
+        for (QueryPiece partition : queries) {
+            tasks.add(() -> runPartition(snapshotId, partition, rowType, canceller));
+        }
+        List<List<T>> parts = runConcurrently(tasks, tasks.size(), canceller);
+        if (order == null) {
+            List<T> result = new ArrayList<>();
+            for (List<T> part : parts) {
+                result.addAll(part);
+            }
+            return result;
+        } else {
+            return mergeOrdered(parts, order);
+        }
+    }
+
+    ///////////////////////////////// Concurrent queries /////////////////////////////////
+
+    /**
+     * Runs tasks on background threads (see {@link GlobalContext#setBackgroundThreads}), not more than
+     * {@code threads} at the same time; if no background thread is free, task is run by the calling thread.
+     * Returns results in the order of tasks. If any task fails, statements of running tasks are cancelled,
+     * remaining tasks are not started, and its exception is rethrown when running tasks complete
+     * (so their connections are released before this method returns).
+     */
+    private <R> List<R> runConcurrently(List<Callable<R>> tasks, int threads, StatementCanceller canceller) throws SQLException {
+        Executor background = ctx.global.getBackgroundExecutor();
+        CompletionService<R> completion = new ExecutorCompletionService<>(task -> {
+            try {
+                background.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.run();
+            }
+        });
+        Map<Future<R>, Integer> indexes = new HashMap<>(tasks.size());
+        List<R> results = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+        int maxRunning = Math.max(1, threads);
+        int submitted = 0;
+        int running = 0;
+        Throwable error = null;
+        boolean interrupted = false;
+        while (true) {
+            while (error == null && submitted < tasks.size() && running < maxRunning) {
+                indexes.put(completion.submit(tasks.get(submitted)), submitted);
+                submitted++;
+                running++;
+            }
+            if (running <= 0)
+                break;
+            Future<R> future;
+            try {
+                future = completion.take();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                if (error == null) {
+                    error = new SQLGException("Interrupted while waiting for concurrent query", ex);
+                    canceller.cancel();
+                }
+                continue;
+            }
+            running--;
+            try {
+                results.set(indexes.get(future), future.get());
+            } catch (ExecutionException ex) {
+                if (error == null) {
+                    error = ex.getCause();
+                    canceller.cancel();
+                }
+            } catch (InterruptedException ex) {
+                // future is done, get() does not wait
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (error instanceof SQLException)
+            throw (SQLException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+        if (error != null)
+            throw new SQLGException("Error in concurrent query", error);
+        return results;
+    }
+
+    /**
+     * Query which can be run concurrently with other queries by {@link #runConcurrently(int, List)}
+     */
+    public interface ConcurrentQuery<T> {
+
+        /**
+         * @param db data access object working on a separate connection; use it instead of the enclosing one
+         */
+        T run(GBase db) throws SQLException;
+    }
+
+    private <T> T runOnSeparateConnection(ConcurrentQuery<T> query, int shard, StatementCanceller canceller) throws SQLException {
+        TransactionContext transaction = new TransactionContext(ctx.global, ctx.session);
+        try {
+            try (GContext child = new GContext(ctx.global, ctx.session, transaction, ctx.call.method, true, shard)) {
+                child.call.setCanceller(canceller);
+                T result = query.run(new GBase(child));
+                child.ok();
+                return result;
+            }
+        } finally {
+            transaction.rollback();
+        }
+    }
+
+    /**
+     * Runs independent read-only queries concurrently, each on its own connection from the session connection
+     * manager (so they do not see uncommitted changes of the current transaction). Read-only connections are used
+     * if connection manager provides them (see {@link ReadOnlyConnectionManager}). Returns when all queries
+     * complete; if any query fails, others are cancelled and its exception is rethrown.
+     * At preprocess time queries are run sequentially.
+     * Example:
+     * <pre>
+     * List&lt;Integer&gt; counts = runConcurrently(4, Arrays.asList(
+     *     db -&gt; db.singleRowQueryReturningInt(db.prepareStatement("SELECT COUNT(*) FROM EMP")),
+     *     db -&gt; db.singleRowQueryReturningInt(db.prepareStatement("SELECT COUNT(*) FROM DEPT"))
+     * ));
+     * </pre>
+     *
+     * @param maxThreads maximum number of queries running at the same time
+     * @param queries queries to run
+     * @return query results in the same order as queries
+     */
+    public final <T> List<T> runConcurrently(int maxThreads, List<? extends ConcurrentQuery<? extends T>> queries) throws SQLException {
+        if (test != null) {
+            List<T> results = new ArrayList<>(queries.size());
+            for (ConcurrentQuery<? extends T> query : queries) {
+                results.add(query.run(this));
+            }
+            return results;
+        }
+        StatementCanceller canceller = new StatementCanceller();
+        List<Callable<T>> tasks = new ArrayList<>(queries.size());
+        for (ConcurrentQuery<? extends T> query : queries) {
+            tasks.add(() -> runOnSeparateConnection(query, ctx.shard, canceller));
+        }
+        return runConcurrently(tasks, maxThreads, canceller);
+    }
+
+    /**
+     * Runs read-only query on all shards concurrently (see {@link ShardedConnectionManager}) and merges results.
+     * If connection manager is not sharded, query is run once on a separate connection.
+     * At preprocess time query is run once.
+     *
+     * @param query query returning list of rows
+     * @param order if not null then query should return rows in this order and results are merged
+     *              preserving it; if null then results are concatenated in shard order
+     */
+    public final <T> List<T> scatterGather(ConcurrentQuery<? extends List<? extends T>> query,
+                                           Comparator<? super T> order) throws SQLException {
+        if (test != null) {
+            return new ArrayList<>(query.run(this));
+        }
+        int shardCount = ctx.session.cman instanceof ShardedConnectionManager
+            ? ((ShardedConnectionManager) ctx.session.cman).getShardCount()
+            : 1;
+        StatementCanceller canceller = new StatementCanceller();
+        List<Callable<List<T>>> tasks = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = ctx.session.cman instanceof ShardedConnectionManager ? i : -1;
+            tasks.add(() -> new ArrayList<>(runOnSeparateConnection(query, shard, canceller)));
+        }
+        List<List<T>> parts = runConcurrently(tasks, shardCount, canceller);
+        if (order == null) {
+            List<T> result = new ArrayList<>();
+            for (List<T> part : parts) {
+                result.addAll(part);
+            }
+            return result;
+        } else {
+            return mergeOrdered(parts, order);
+        }
+    }
+
     ///////////////////////////////// Executing calls /////////////////////////////////
 
     private static String getProcCallSql(String name, Parameter[] in) {
@@ -696,6 +1315,18 @@ public class GBase implements ISimpleTransaction {
         }
     }
 
+    /**
+     * Returns loader which coalesces row lookups by key into batched queries.
+     * Loaded rows are shared by all loaders with the same id in the current transaction.
+     *
+     * @param id loader identifier (unique for key and row type)
+     * @param keyOf extracts key from row
+     * @param query query returning rows for list of keys (see {@link #keyIn})
+     */
+    public final <K, T> BatchLoader<K, T> getBatchLoader(Object id, Function<T, K> keyOf, BatchLoader.Query<K, T> query) {
+        return new BatchLoader<>(ctx.transaction.getLoaderState(id), keyOf, query);
+    }
+
     private <T> TypeMapper<T> getMapper(Class<T> cls) {
         return ctx.global.mappers.getMapper(cls);
     }
@@ -718,17 +1349,61 @@ public class GBase implements ISimpleTransaction {
                 return null;
             };
         } else {
-            RowTypeFactory<T> factory = ctx.global.getRowTypeFactory(rowType, meta);
-            return () -> {
-                if (rs.next()) {
-                    return factory.fetch(ctx.global.mappers, rs);
-                } else {
-                    return null;
+            return new RowFetcher<T>() {
+
+                private FetchPlan<T> plan = null;
+
+                @Override
+                public T fetchNext() throws SQLException {
+                    if (rs.next()) {
+                        if (plan == null) {
+                            plan = ctx.global.getFetchPlan(rowType, rs, meta, ctx.call);
+                        }
+                        return plan.fetch(rs);
+                    } else {
+                        return null;
+                    }
                 }
             };
         }
     }
 
+    /**
+     * Fetches rows from result set in background thread (rows are fetched and converted to row type
+     * while the caller processes previous rows). Useful when row processing takes about as much time as fetching.
+     * Background thread is stopped when business method completes. If all background threads are busy
+     * (see {@link GlobalContext#setBackgroundThreads}), rows are fetched by the caller without prefetching.
+     *
+     * @param rowType row type class
+     * @param chunkSize number of rows passed to the caller at once
+     * @param chunks maximum number of chunks fetched ahead
+     */
+    public final <T> RowFetcher<T> getPrefetchingRowFetcher(Class<T> rowType, ResultSet rs, int chunkSize, int chunks) throws SQLException {
+        if (test != null) {
+            return getRowFetcher(rowType, rs);
+        } else {
+            FetchPlan<T> plan = ctx.global.getFetchPlan(rowType, rs, false, null);
+            PrefetchingRowFetcher<T> fetcher = new PrefetchingRowFetcher<>(rs, plan, chunkSize, chunks);
+            ctx.call.fetcherCreated(fetcher);
+            fetcher.start(ctx.global.getBackgroundExecutor());
+            return fetcher;
+        }
+    }
+
+    /**
+     * Same as {@link #getPrefetchingRowFetcher(Class, ResultSet, int, int)} with 4 chunks of 256 rows.
+     */
+    public final <T> RowFetcher<T> getPrefetchingRowFetcher(Class<T> rowType, ResultSet rs) throws SQLException {
+        return getPrefetchingRowFetcher(rowType, rs, 256, 4);
+    }
+
+    /**
+     * Returns cached database capabilities.
+     */
+    public final DBCapabilities getCapabilities() throws SQLException {
+        return ctx.global.getCapabilities(getConnection());
+    }
+
     public final GlobalContext getGlobal() {
         return ctx.global;
     }
@@ -1,17 +1,35 @@
 package sqlg3.runtime;
 
+import java.lang.reflect.Method;
+
 public final class GContext implements AutoCloseable {
 
     final GlobalContext global;
     final SessionContext session;
     final TransactionContext transaction;
     final CallContext call;
+    /**
+     * true if call does not modify data and can use read-only connection
+     */
+    final boolean readOnly;
+    /**
+     * Shard index for {@link ShardedConnectionManager}, -1 if not known
+     */
+    final int shard;
 
-    GContext(GlobalContext global, SessionContext session, TransactionContext transaction) {
+    /**
+     * @param method DAO method being called, null if not known
+     * @param readOnly true if call does not modify data
+     * @param shard shard index, -1 if not known
+     */
+    GContext(GlobalContext global, SessionContext session, TransactionContext transaction, Method method,
+             boolean readOnly, int shard) {
         this.global = global;
         this.session = session;
         this.transaction = transaction;
-        this.call = new CallContext(global);
+        this.call = new CallContext(global, method);
+        this.readOnly = readOnly;
+        this.shard = shard;
     }
 
     void ok() {
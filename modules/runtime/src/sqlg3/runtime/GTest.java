@@ -12,7 +12,7 @@ public abstract class GTest {
         SqlTrace noTrace = (ok, time, getMessages) -> {};
         GlobalContext global = new GlobalContext(specific, mappers, noTrace);
         SessionContext session = new SessionContext(new SingleConnectionManager(connection), null, null);
-        return new GContext(global, session, new TransactionContext(global, session));
+        return new GContext(global, session, new TransactionContext(global, session), null, false, -1);
     }
 
     public abstract <T> T getNullInterface(Class<T> iface);
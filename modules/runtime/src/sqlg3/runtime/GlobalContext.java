@@ -1,36 +1,72 @@
 package sqlg3.runtime;
 
 import sqlg3.core.Impl;
-import sqlg3.core.MetaColumn;
+import sqlg3.core.ShardKey;
 import sqlg3.core.SQLGException;
 
-import java.io.Serializable;
-import java.lang.reflect.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.Connection;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public final class GlobalContext {
 
     public static final String ORDER_FIELD = "ORDER";
+    /**
+     * Default maximum number of background threads (see {@link #setBackgroundThreads})
+     */
+    public static final int DEFAULT_BACKGROUND_THREADS = 32;
 
     final DBSpecific db;
     final RuntimeMapper mappers;
     final SqlTrace trace;
 
     public volatile boolean checkRowTypes = false;
+    /**
+     * Captures plans of slow statements, null if disabled
+     */
+    public volatile SlowStatementDetector slowStatements = null;
+    /**
+     * Detects SQL repeated many times in one business method call, null if disabled
+     */
+    public volatile RepeatedQueryDetector repeatedQueries = null;
+    /**
+     * If true then large object streams not read until the end of business method call are copied to
+     * temporary files, so they can be read later (for example, by remote server while sending results)
+     */
+    public volatile boolean detachLobs = false;
     public final Map<String, Object> userData = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<Class<?>, RowTypeFactory<?>> rowTypeFactoryCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, RowTypeFactory<?>> metaRowTypeFactoryCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<Class<?>, ImplCache> implCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, RowTypeFields> rowTypeFieldsCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, Integer> shardKeyCache = new ConcurrentHashMap<>();
+
+    /**
+     * Threads shared by all calls for background work; idle threads are stopped after a minute.
+     * Work is rejected (not queued) when all threads are busy.
+     */
+    private final ThreadPoolExecutor background = new ThreadPoolExecutor(
+        0, DEFAULT_BACKGROUND_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        r -> {
+            Thread thread = new Thread(r, "SQLG background");
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
+
+    private final Object capabilitiesLock = new Object();
+    private volatile DBCapabilities capabilities = null;
 
     public GlobalContext(DBSpecific db, RuntimeMapper mappers, SqlTrace trace) {
         this.db = db;
@@ -38,148 +74,84 @@ public final class GlobalContext {
         this.trace = trace;
     }
 
-    private static <T> int fetchField(RuntimeMapper mappers, Class<T> fieldType, ResultSet rs, int index,
-                                      Consumer<T> value) throws SQLException {
-        TypeMapper<T> mapper = mappers.getMapper(fieldType);
-        value.accept(mapper.fetch(rs, index));
-        return mapper.getResultSetColumns();
+    /**
+     * Returns database capabilities. They are read from the connection metadata on the first call
+     * and are cached afterwards (all connections are assumed to be to the same database).
+     */
+    public DBCapabilities getCapabilities(Connection connection) throws SQLException {
+        DBCapabilities result = capabilities;
+        if (result == null) {
+            synchronized (capabilitiesLock) {
+                result = capabilities;
+                if (result == null) {
+                    result = DBCapabilities.read(connection.getMetaData());
+                    capabilities = result;
+                }
+            }
+        }
+        return result;
     }
 
-    private static void checkRowType(ResultSetMetaData rsmd, int fieldCount) throws SQLException {
-        int columnCount = rsmd.getColumnCount();
-        if (columnCount != fieldCount) {
-            throw new SQLGException(
-                "Different number of columns in query (" + columnCount + ") and constructor (" + fieldCount + ")"
-            );
-        }
+    /**
+     * Sets maximum number of threads for background work of business calls: prefetching row fetchers,
+     * concurrent and partitioned queries. When all threads are busy, this work is done by the calling thread.
+     */
+    public void setBackgroundThreads(int threads) {
+        background.setMaximumPoolSize(threads);
     }
 
-    private static int fetchMeta(Class<?> rowType, Class<?> fieldType,
-                                 ResultSetMetaData rsmd, int index,
-                                 Consumer<MetaColumn> value) throws SQLException {
-        if (!MetaColumn.class.equals(fieldType))
-            throw new SQLGException("Meta row type should contain only MetaColumns in " + rowType.getCanonicalName());
-        value.accept(new MetaColumn(
-            rsmd.isNullable(index) == ResultSetMetaData.columnNoNulls,
-            rsmd.getColumnDisplaySize(index), rsmd.getPrecision(index), rsmd.getScale(index)
-        ));
-        return 1;
+    /**
+     * Executor for background work; throws {@link java.util.concurrent.RejectedExecutionException}
+     * when all threads are busy.
+     */
+    Executor getBackgroundExecutor() {
+        return background;
     }
 
-    private static RowTypeFactory<?> createRowTypeFactory(Class<?> rowType, boolean meta, boolean check) {
-        if (rowType.isInterface()) {
-            String[] order;
-            try {
-                Field orderField = rowType.getDeclaredField(ORDER_FIELD);
-                order = (String[]) orderField.get(null);
-            } catch (IllegalAccessException | NoSuchFieldException | RuntimeException ex) {
-                throw new SQLGException("Cannot get fields order for " + rowType.getCanonicalName(), ex);
-            }
-            Method[] methods = rowType.getDeclaredMethods();
-            Map<String, Class<?>> fieldTypeMap = new HashMap<>(methods.length);
-            for (Method method : methods) {
-                String field = method.getName();
-                fieldTypeMap.put(field, method.getReturnType());
-            }
-            Class<?>[] fieldTypes = new Class[order.length];
-            for (int i = 0; i < order.length; i++) {
-                String field = order[i];
-                fieldTypes[i] = fieldTypeMap.get(field);
+    @SuppressWarnings("unchecked")
+    <T> RowTypeFactory<T> getRowTypeFactory(Class<T> rowType, boolean meta) {
+        ConcurrentMap<Class<?>, RowTypeFactory<?>> cache = meta ? metaRowTypeFactoryCache : rowTypeFactoryCache;
+        return (RowTypeFactory<T>) cache.computeIfAbsent(rowType, c -> RowTypeFactory.create(c, meta));
+    }
+
+    /**
+     * Creates plan to fetch rows of given type from result set.
+     * Result set columns are checked against row type only once here (when {@link #checkRowTypes} is on).
+     */
+    <T> FetchPlan<T> getFetchPlan(Class<T> rowType, ResultSet rs, boolean meta, CallContext call) throws SQLException {
+        return new FetchPlan<>(getRowTypeFactory(rowType, meta), mappers, rs, checkRowTypes, call);
+    }
+
+    RowTypeFields getRowTypeFields(Class<?> rowType) {
+        return rowTypeFieldsCache.computeIfAbsent(rowType, RowTypeFields::create);
+    }
+
+    /**
+     * Database-specific classification of errors for {@link sqlg3.core.RetryPolicy}:
+     * <pre>
+     * new RetryPolicy(5, 10000, 20, 1000, 0.5, global::isRetryable)
+     * </pre>
+     */
+    public boolean isRetryable(SQLException ex) {
+        return db.isRetryable(ex);
+    }
+
+    private static int findShardKey(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey)
+                    return i;
             }
-            return (mappers, rs) -> {
-                int fieldCount = order.length;
-                Map<String, Object> rowData = new HashMap<>(fieldCount);
-                if (meta) {
-                    ResultSetMetaData rsmd = rs.getMetaData();
-                    if (check) {
-                        checkRowType(rsmd, fieldCount);
-                    }
-                    int index = 1;
-                    for (int i = 0; i < fieldCount; i++) {
-                        String field = order[i];
-                        index += fetchMeta(
-                            rowType, fieldTypes[i], rsmd, index,
-                            value -> rowData.put(field, value)
-                        );
-                    }
-                } else {
-                    if (check) {
-                        checkRowType(rs.getMetaData(), fieldCount);
-                    }
-                    int index = 1;
-                    for (int i = 0; i < fieldCount; i++) {
-                        String field = order[i];
-                        index += fetchField(
-                            mappers, fieldTypes[i], rs, index,
-                            value -> rowData.put(field, value)
-                        );
-                    }
-                }
-                return Proxy.newProxyInstance(
-                    rowType.getClassLoader(), new Class[] {rowType, Serializable.class},
-                    (proxy, method, args) -> {
-                        String name = method.getName();
-                        int paramCount = method.getParameterCount();
-                        if ("toString".equals(name) && paramCount == 0) {
-                            return rowData.toString();
-                        } else if ("hashCode".equals(name) && paramCount == 0) {
-                            return System.identityHashCode(proxy);
-                        } else if ("equals".equals(name) && paramCount == 1 && Object.class.equals(method.getParameterTypes()[0])) {
-                            return proxy == args[0];
-                        } else {
-                            return rowData.get(name);
-                        }
-                    }
-                );
-            };
         }
-        List<Constructor<?>> constructors = Arrays.stream(rowType.getConstructors())
-            .filter(c -> !c.isSynthetic())
-            .collect(Collectors.toList());
-        if (constructors.size() != 1)
-            throw new SQLGException("Should be only one constructor for " + rowType.getCanonicalName());
-        Constructor<?> constructor = constructors.get(0);
-        Class<?>[] fieldTypes = constructor.getParameterTypes();
-        return (mappers, rs) -> {
-            int fieldCount = fieldTypes.length;
-            Object[] fields = new Object[fieldCount];
-            if (meta) {
-                ResultSetMetaData rsmd = rs.getMetaData();
-                if (check) {
-                    checkRowType(rsmd, fieldCount);
-                }
-                int index = 1;
-                for (int i = 0; i < fieldCount; i++) {
-                    int j = i;
-                    index += fetchMeta(
-                        rowType, fieldTypes[i], rsmd, index,
-                        value -> fields[j] = value
-                    );
-                }
-            } else {
-                if (check) {
-                    checkRowType(rs.getMetaData(), fieldCount);
-                }
-                int index = 1;
-                for (int i = 0; i < fieldCount; i++) {
-                    int j = i;
-                    index += fetchField(
-                        mappers, fieldTypes[i], rs, index,
-                        value -> fields[j] = value
-                    );
-                }
-            }
-            try {
-                return constructor.newInstance(fields);
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
-                throw new SQLGException("Cannot invoke row constructor for " + rowType.getCanonicalName(), ex);
-            }
-        };
+        return -1;
     }
 
-    @SuppressWarnings("unchecked")
-    <T> RowTypeFactory<T> getRowTypeFactory(Class<T> rowType, boolean meta) {
-        return (RowTypeFactory<T>) rowTypeFactoryCache.computeIfAbsent(rowType, c -> createRowTypeFactory(c, meta, checkRowTypes));
+    /**
+     * Returns index of interface method parameter marked with {@link ShardKey}, -1 if there is no such parameter.
+     */
+    int getShardKeyParameter(Method method) {
+        return shardKeyCache.computeIfAbsent(method, GlobalContext::findShardKey);
     }
 
     private static ImplCache createImpl(Class<?> iface) {
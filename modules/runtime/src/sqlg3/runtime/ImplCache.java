@@ -1,14 +1,30 @@
 package sqlg3.runtime;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 final class ImplCache {
 
     final Class<?> dao;
     final Constructor<?> constructor;
+    /**
+     * Interface method to DAO method
+     */
+    private final ConcurrentMap<Method, Method> daoMethods = new ConcurrentHashMap<>();
 
     ImplCache(Class<?> dao, Constructor<?> constructor) {
         this.dao = dao;
         this.constructor = constructor;
     }
+
+    Method getDaoMethod(Method method) throws NoSuchMethodException {
+        Method daoMethod = daoMethods.get(method);
+        if (daoMethod == null) {
+            daoMethod = dao.getMethod(method.getName(), method.getParameterTypes());
+            daoMethods.putIfAbsent(method, daoMethod);
+        }
+        return daoMethod;
+    }
 }
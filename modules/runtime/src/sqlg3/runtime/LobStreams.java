@@ -0,0 +1,289 @@
+package sqlg3.runtime;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * For internal use.
+ * Streams fetched by {@link RuntimeMapperImpl.BinaryStreamMapper} and {@link RuntimeMapperImpl.CharacterStreamMapper}.
+ * Streams over large objects are registered in {@link CallContext} and stay valid until it is closed.
+ * Values of other columns (like PostgreSQL <code>bytea</code> or <code>text</code>) are read from the column
+ * stream immediately, into memory or temporary file.
+ */
+final class LobStreams {
+
+    private LobStreams() {
+    }
+
+    /**
+     * Large object fetched in business call
+     */
+    interface LobResource {
+
+        /**
+         * Copies unread content to temporary file, so stream stays valid after the end of transaction.
+         */
+        void detach() throws IOException, SQLException;
+
+        /**
+         * Releases large object.
+         */
+        void free();
+    }
+
+    /**
+     * Creates temporary file and fills it with content. File is deleted if filling fails.
+     */
+    private static Path createTempFile(TempFileFiller filler) throws IOException {
+        Path file = Files.createTempFile("sqlg", ".lob");
+        try {
+            filler.fill(file);
+        } catch (IOException | RuntimeException | Error ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        return file;
+    }
+
+    private interface TempFileFiller {
+
+        void fill(Path file) throws IOException;
+    }
+
+    /**
+     * Stream over temporary file which deletes file on close
+     * (file is not registered for deletion on exit, since it keeps its path in memory until JVM exit).
+     */
+    private static final class TempFileInputStream extends FilterInputStream {
+
+        private final Path file;
+
+        TempFileInputStream(Path file) throws IOException {
+            super(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static InputStream openTempFile(Path file) throws IOException {
+        try {
+            return new TempFileInputStream(file);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads column stream (which is valid only until the next row) not longer than {@code inlineLimit} bytes into
+     * memory, longer one is copied to temporary file deleted when returned stream is closed.
+     */
+    static InputStream fetchBinary(InputStream in, int inlineLimit) throws IOException {
+        try (InputStream source = in) {
+            // buffer grows up to inlineLimit + 1 to detect longer values
+            byte[] buf = new byte[Math.min(inlineLimit + 1, 4096)];
+            int count = 0;
+            while (count <= inlineLimit) {
+                if (count >= buf.length) {
+                    buf = Arrays.copyOf(buf, Math.min(inlineLimit + 1, buf.length * 2));
+                }
+                int read = source.read(buf, count, buf.length - count);
+                if (read < 0)
+                    return new ByteArrayInputStream(buf, 0, count);
+                count += read;
+            }
+            byte[] head = buf;
+            int prefix = count;
+            Path file = createTempFile(tmp -> {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    out.write(head, 0, prefix);
+                    byte[] chunk = new byte[8192];
+                    while (true) {
+                        int read = source.read(chunk);
+                        if (read < 0)
+                            break;
+                        out.write(chunk, 0, read);
+                    }
+                }
+            });
+            return openTempFile(file);
+        }
+    }
+
+    /**
+     * Reads column stream (which is valid only until the next row) not longer than {@code inlineLimit} chars into
+     * memory, longer one is copied to temporary file deleted when returned reader is closed.
+     */
+    static Reader fetchCharacter(Reader in, int inlineLimit) throws IOException {
+        try (Reader source = in) {
+            // buffer grows up to inlineLimit + 1 to detect longer values
+            char[] buf = new char[Math.min(inlineLimit + 1, 4096)];
+            int count = 0;
+            while (count <= inlineLimit) {
+                if (count >= buf.length) {
+                    buf = Arrays.copyOf(buf, Math.min(inlineLimit + 1, buf.length * 2));
+                }
+                int read = source.read(buf, count, buf.length - count);
+                if (read < 0)
+                    return new StringReader(new String(buf, 0, count));
+                count += read;
+            }
+            char[] head = buf;
+            int prefix = count;
+            Path file = createTempFile(tmp -> {
+                try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    out.write(head, 0, prefix);
+                    char[] chunk = new char[8192];
+                    while (true) {
+                        int read = source.read(chunk);
+                        if (read < 0)
+                            break;
+                        out.write(chunk, 0, read);
+                    }
+                }
+            });
+            return new InputStreamReader(openTempFile(file), StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class BlobStream extends InputStream implements LobResource {
+
+        private final Blob blob;
+        private InputStream source;
+        private boolean detached = false;
+
+        BlobStream(Blob blob) throws SQLException {
+            this.blob = blob;
+            this.source = blob.getBinaryStream();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return source.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        @Override
+        public void detach() throws IOException {
+            if (detached)
+                return;
+            Path file = createTempFile(tmp -> {
+                try (InputStream in = source) {
+                    Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            });
+            source = openTempFile(file);
+            detached = true;
+        }
+
+        @Override
+        public void free() {
+            try {
+                if (!detached) {
+                    source.close();
+                }
+                blob.free();
+            } catch (IOException | SQLException | AbstractMethodError ex) {
+                // ignore
+            }
+        }
+    }
+
+    static final class ClobReader extends Reader implements LobResource {
+
+        private final Clob clob;
+        private Reader source;
+        private boolean detached = false;
+
+        ClobReader(Clob clob) throws SQLException {
+            this.clob = clob;
+            this.source = clob.getCharacterStream();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return source.read(cbuf, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return source.skip(n);
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return source.ready();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        @Override
+        public void detach() throws IOException {
+            if (detached)
+                return;
+            Path file = createTempFile(tmp -> {
+                try (Reader in = source; Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    char[] buf = new char[8192];
+                    while (true) {
+                        int read = in.read(buf);
+                        if (read < 0)
+                            break;
+                        out.write(buf, 0, read);
+                    }
+                }
+            });
+            source = new InputStreamReader(openTempFile(file), StandardCharsets.UTF_8);
+            detached = true;
+        }
+
+        @Override
+        public void free() {
+            try {
+                if (!detached) {
+                    source.close();
+                }
+                clob.free();
+            } catch (IOException | SQLException | AbstractMethodError ex) {
+                // ignore
+            }
+        }
+    }
+}
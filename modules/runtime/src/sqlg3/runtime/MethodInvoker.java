@@ -0,0 +1,23 @@
+package sqlg3.runtime;
+
+import sqlg3.core.IDBCommon;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Transaction which can call business methods directly, without creating interface proxy
+ * (see {@link sqlg3.core.ISimpleTransaction#getInterface}). Used by remote server.
+ */
+public interface MethodInvoker {
+
+    /**
+     * Calls business method the same way as its call on interface returned by
+     * {@link sqlg3.core.ISimpleTransaction#getInterface}.
+     *
+     * @param iface business interface
+     * @param method interface method
+     * @throws InvocationTargetException wraps exception thrown by the call
+     */
+    Object invoke(Class<? extends IDBCommon> iface, Method method, Object[] args) throws InvocationTargetException;
+}
@@ -119,7 +119,7 @@ public final class Parameter {
      *
      * @param in values array
      */
-    static void setParameters(RuntimeMapper mappers, PreparedStatement st, Parameter[] in) throws SQLException {
+    public static void setParameters(RuntimeMapper mappers, PreparedStatement st, Parameter[] in) throws SQLException {
         if (in == null)
             return;
         int index = 1;
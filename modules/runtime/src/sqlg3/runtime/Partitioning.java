@@ -0,0 +1,71 @@
+package sqlg3.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conditions splitting query into partitions for {@link GBase#partitionedQuery}.
+ * Each row of the table should satisfy exactly one condition.
+ */
+public final class Partitioning {
+
+    private final List<QueryPiece> conditions;
+
+    private Partitioning(List<QueryPiece> conditions) {
+        this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * Splits by {@code MOD(expression, count) = i} conditions.
+     *
+     * @param expression integer non-negative expression (for example, numeric primary key or its hash)
+     * @param count number of partitions
+     */
+    public static Partitioning byMod(String expression, int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Number of partitions should be positive");
+        List<QueryPiece> conditions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            conditions.add(new QueryPiece(
+                "MOD(" + expression + ", " + count + ") = ?", new Parameter[] {Parameter.in(i, Integer.class)}
+            ));
+        }
+        return new Partitioning(conditions);
+    }
+
+    /**
+     * Splits by key ranges: {@code column < bounds[0]}, {@code column >= bounds[0] AND column < bounds[1]}, ...,
+     * {@code column >= bounds[n - 1]}, so there are {@code bounds.length + 1} partitions.
+     * Rows with NULL key are not included in any partition.
+     *
+     * @param column key column
+     * @param cls key class
+     * @param bounds partition bounds in ascending order
+     */
+    @SafeVarargs
+    public static <K> Partitioning byRange(String column, Class<K> cls, K... bounds) {
+        List<QueryPiece> conditions = new ArrayList<>(bounds.length + 1);
+        for (int i = 0; i <= bounds.length; i++) {
+            if (i == 0) {
+                conditions.add(new QueryPiece(
+                    column + " < ?", new Parameter[] {Parameter.in(bounds[i], cls)}
+                ));
+            } else if (i == bounds.length) {
+                conditions.add(new QueryPiece(
+                    column + " >= ?", new Parameter[] {Parameter.in(bounds[i - 1], cls)}
+                ));
+            } else {
+                conditions.add(new QueryPiece(
+                    column + " >= ? AND " + column + " < ?",
+                    new Parameter[] {Parameter.in(bounds[i - 1], cls), Parameter.in(bounds[i], cls)}
+                ));
+            }
+        }
+        return new Partitioning(conditions);
+    }
+
+    public List<QueryPiece> getConditions() {
+        return conditions;
+    }
+}
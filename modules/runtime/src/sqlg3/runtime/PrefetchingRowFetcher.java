@@ -0,0 +1,191 @@
+package sqlg3.runtime;
+
+import sqlg3.core.SQLGException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row fetcher which reads result set in background thread, so fetching from database and
+ * processing of rows run in parallel. Rows are passed to consumer in chunks through bounded queue.
+ * Result set is accessed only by background thread until it finishes or is cancelled
+ * (which is done by {@link CallContext} before closing statements). Background threads are shared
+ * (see {@link GlobalContext#setBackgroundThreads}); if none is free, rows are fetched by the caller.
+ * <p>
+ * Note that background thread uses the same JDBC connection as the calling thread: while rows are prefetched
+ * the caller should not execute other statements on this connection, unless the driver supports
+ * concurrent use of one connection from several threads.
+ */
+final class PrefetchingRowFetcher<T> implements GBase.RowFetcher<T> {
+
+    private static final List<Object> END = Collections.emptyList();
+    /**
+     * Time in milliseconds to wait for background thread after interrupt before cancelling statement
+     */
+    private static final long INTERRUPT_TIMEOUT = 100;
+
+    private final ResultSet rs;
+    private final FetchPlan<T> plan;
+    private final int chunkSize;
+    private final BlockingQueue<List<?>> queue;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private final Object producerLock = new Object();
+    /**
+     * Thread running {@link #produce}, null if it is not running
+     */
+    private Thread producer = null;
+    private volatile boolean cancelled = false;
+    private volatile Throwable error = null;
+    /**
+     * true if there was no free background thread, rows are fetched by the caller
+     */
+    private boolean direct = false;
+    private Iterator<T> current = Collections.emptyIterator();
+    private boolean finished = false;
+
+    PrefetchingRowFetcher(ResultSet rs, FetchPlan<T> plan, int chunkSize, int chunks) {
+        this.rs = rs;
+        this.plan = plan;
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(chunks);
+    }
+
+    void start(Executor executor) {
+        try {
+            executor.execute(this::produce);
+        } catch (RejectedExecutionException ex) {
+            direct = true;
+            done.countDown();
+        }
+    }
+
+    private void produce() {
+        synchronized (producerLock) {
+            producer = Thread.currentThread();
+        }
+        try {
+            if (cancelled)
+                return;
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (rs.next()) {
+                chunk.add(plan.fetch(rs));
+                if (chunk.size() >= chunkSize) {
+                    queue.put(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+                if (cancelled)
+                    return;
+            }
+            if (!chunk.isEmpty()) {
+                queue.put(chunk);
+            }
+            queue.put(END);
+        } catch (InterruptedException ex) {
+            // cancelled
+        } catch (Throwable ex) {
+            error = ex;
+            try {
+                queue.put(END);
+            } catch (InterruptedException ex2) {
+                // cancelled
+            }
+        } finally {
+            synchronized (producerLock) {
+                producer = null;
+            }
+            // Pooled thread must not keep interrupt meant for this fetcher
+            Thread.interrupted();
+            done.countDown();
+        }
+    }
+
+    private T fetchDirect() throws SQLException {
+        if (!finished && rs.next())
+            return plan.fetch(rs);
+        finished = true;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T fetchNext() throws SQLException {
+        if (direct)
+            return fetchDirect();
+        while (!current.hasNext()) {
+            if (finished)
+                return null;
+            List<?> chunk;
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLGException("Interrupted while fetching rows", ex);
+            }
+            if (chunk == END) {
+                finished = true;
+                Throwable ex = error;
+                if (ex instanceof SQLException) {
+                    throw (SQLException) ex;
+                } else if (ex instanceof RuntimeException) {
+                    throw (RuntimeException) ex;
+                } else if (ex instanceof Error) {
+                    throw (Error) ex;
+                } else if (ex != null) {
+                    throw new SQLGException("Error fetching rows", ex);
+                }
+                return null;
+            }
+            current = ((List<T>) chunk).iterator();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stops background thread and waits for its completion. If it does not stop after interrupt,
+     * statement is cancelled and the wait is not bounded: result set and its connection should not be used
+     * (or returned to the pool) while background thread still reads it.
+     */
+    void cancel() {
+        cancelled = true;
+        synchronized (producerLock) {
+            if (producer != null) {
+                producer.interrupt();
+            }
+        }
+        boolean interrupted = false;
+        boolean statementCancelled = false;
+        while (true) {
+            // Unblocks producer waiting for free space in queue
+            queue.clear();
+            try {
+                if (done.await(INTERRUPT_TIMEOUT, TimeUnit.MILLISECONDS))
+                    break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+            if (!statementCancelled) {
+                // Thread can be blocked in driver waiting for the next rows
+                statementCancelled = true;
+                try {
+                    rs.getStatement().cancel();
+                } catch (SQLException ex) {
+                    // ignore
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
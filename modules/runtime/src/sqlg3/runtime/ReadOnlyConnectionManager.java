@@ -0,0 +1,18 @@
+package sqlg3.runtime;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connection manager which can provide separate connections for read-only business calls
+ * (methods marked with {@link sqlg3.core.ReadOnlyCall}).
+ * Read-only connections are used only for simple transactions and concurrent queries; full transactions
+ * always use {@link #allocConnection()}.
+ */
+public interface ReadOnlyConnectionManager extends ConnectionManager {
+
+    /**
+     * Allocates connection for read-only call. It is released by {@link #releaseConnection(Connection)}.
+     */
+    Connection allocReadOnlyConnection() throws SQLException;
+}
@@ -0,0 +1,30 @@
+package sqlg3.runtime;
+
+import java.lang.reflect.Method;
+
+/**
+ * Counts executions of each SQL text inside one business method call.
+ * Set {@link GlobalContext#repeatedQueries} to enable detector.
+ */
+public final class RepeatedQueryDetector {
+
+    private final int threshold;
+    private final RepeatedQueryListener listener;
+
+    /**
+     * @param threshold maximum number of executions of the same SQL in one call which is not reported
+     */
+    public RepeatedQueryDetector(int threshold, RepeatedQueryListener listener) {
+        this.threshold = threshold;
+        this.listener = listener;
+    }
+
+    /**
+     * @param count number of executions of SQL in the current call including this one
+     */
+    void executed(Method method, String sql, int count) {
+        if (count == threshold + 1) {
+            listener.repeatedQuery(method, sql, count);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package sqlg3.runtime;
+
+import sqlg3.core.SQLGException;
+
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * Notified by {@link RepeatedQueryDetector} when the same SQL is executed too many times
+ * inside one business method call (usually a query in a loop, "N+1 queries" problem).
+ */
+public interface RepeatedQueryListener {
+
+    static String getMessage(Method method, String sql, int count) {
+        String where = method == null ? "" : " in " + method.getDeclaringClass().getCanonicalName() + "." + method.getName();
+        return "SQL executed " + count + " times" + where + ": " + sql;
+    }
+
+    static RepeatedQueryListener createDefault(Consumer<String> logger) {
+        return (method, sql, count) -> logger.accept(getMessage(method, sql, count));
+    }
+
+    /**
+     * Listener which fails business method call, useful in test environments.
+     */
+    static RepeatedQueryListener createFailing() {
+        return (method, sql, count) -> {
+            throw new SQLGException(getMessage(method, sql, count));
+        };
+    }
+
+    /**
+     * Invoked once per SQL per call when repeat count exceeds threshold.
+     * Exception thrown from this method fails the business method call.
+     *
+     * @param method DAO method, null if not known
+     * @param sql SQL text
+     * @param count number of executions so far
+     */
+    void repeatedQuery(Method method, String sql, int count);
+}
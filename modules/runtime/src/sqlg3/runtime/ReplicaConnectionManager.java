@@ -0,0 +1,71 @@
+package sqlg3.runtime;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Routes read-only calls to replica database and other calls to primary database.
+ * Replica connections are switched to read-only mode ({@link Connection#setReadOnly}).
+ */
+public class ReplicaConnectionManager implements ReadOnlyConnectionManager {
+
+    protected final ConnectionManager primary;
+    protected final ConnectionManager replica;
+    private final Set<Connection> replicaConnections = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public ReplicaConnectionManager(ConnectionManager primary, ConnectionManager replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    public Connection allocConnection() throws SQLException {
+        return primary.allocConnection();
+    }
+
+    public Connection allocReadOnlyConnection() throws SQLException {
+        Connection conn = replica.allocConnection();
+        try {
+            conn.setReadOnly(true);
+        } catch (SQLException ex) {
+            try {
+                replica.releaseConnection(conn);
+            } catch (SQLException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            throw ex;
+        }
+        replicaConnections.add(conn);
+        return conn;
+    }
+
+    private ConnectionManager getOwner(Connection conn) {
+        return replicaConnections.contains(conn) ? replica : primary;
+    }
+
+    public void releaseConnection(Connection conn) throws SQLException {
+        if (replicaConnections.remove(conn)) {
+            replica.releaseConnection(conn);
+        } else {
+            primary.releaseConnection(conn);
+        }
+    }
+
+    public void commit(Connection conn) throws SQLException {
+        getOwner(conn).commit(conn);
+    }
+
+    public void rollback(Connection conn) throws SQLException {
+        getOwner(conn).rollback(conn);
+    }
+
+    public void close() throws SQLException {
+        try {
+            replica.close();
+        } finally {
+            primary.close();
+        }
+    }
+}
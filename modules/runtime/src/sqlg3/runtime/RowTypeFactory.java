@@ -1,13 +1,244 @@
 package sqlg3.runtime;
 
-import java.sql.ResultSet;
+import sqlg3.core.MetaColumn;
+import sqlg3.core.SQLGException;
+
+import java.io.Serializable;
+import java.lang.reflect.*;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * For internal use.
- * Stores methods to create row type class instances from result set.
+ * Stores row type fields and methods to create row type class instances from field values.
+ * Instances are cached in {@link GlobalContext} for each row type and meta flag.
+ *
+ * @see FetchPlan
  */
-interface RowTypeFactory<T> {
+final class RowTypeFactory<T> {
+
+    private interface Creator {
+
+        Object create(Object[] values);
+    }
+
+    final Class<T> rowType;
+    final boolean meta;
+    final String[] names;
+    final Class<?>[] types;
+    private final Creator creator;
+
+    private RowTypeFactory(Class<T> rowType, boolean meta, String[] names, Class<?>[] types, Creator creator) {
+        this.rowType = rowType;
+        this.meta = meta;
+        this.names = names;
+        this.types = types;
+        this.creator = creator;
+    }
+
+    private static Object createProxy(Class<?> rowType, Map<String, Object> rowData) {
+        return Proxy.newProxyInstance(
+            rowType.getClassLoader(), new Class[] {rowType, Serializable.class},
+            (proxy, method, args) -> {
+                String name = method.getName();
+                int paramCount = method.getParameterCount();
+                if ("toString".equals(name) && paramCount == 0) {
+                    return rowData.toString();
+                } else if ("hashCode".equals(name) && paramCount == 0) {
+                    return System.identityHashCode(proxy);
+                } else if ("equals".equals(name) && paramCount == 1 && Object.class.equals(method.getParameterTypes()[0])) {
+                    return proxy == args[0];
+                } else {
+                    return rowData.get(name);
+                }
+            }
+        );
+    }
+
+    private static String[] getFieldNames(Class<?> rowType, int count) {
+        List<String> fields = new ArrayList<>();
+        for (Field field : rowType.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+                continue;
+            fields.add(field.getName());
+        }
+        if (fields.size() == count)
+            return fields.toArray(new String[0]);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "#" + (i + 1);
+        }
+        return names;
+    }
+
+    static <T> RowTypeFactory<T> create(Class<T> rowType, boolean meta) {
+        String[] names;
+        Class<?>[] types;
+        Creator creator;
+        if (rowType.isInterface()) {
+            try {
+                Field orderField = rowType.getDeclaredField(GlobalContext.ORDER_FIELD);
+                names = (String[]) orderField.get(null);
+            } catch (IllegalAccessException | NoSuchFieldException | RuntimeException ex) {
+                throw new SQLGException("Cannot get fields order for " + rowType.getCanonicalName(), ex);
+            }
+            Method[] methods = rowType.getDeclaredMethods();
+            Map<String, Class<?>> fieldTypeMap = new HashMap<>(methods.length);
+            for (Method method : methods) {
+                String field = method.getName();
+                fieldTypeMap.put(field, method.getReturnType());
+            }
+            types = new Class[names.length];
+            for (int i = 0; i < names.length; i++) {
+                types[i] = fieldTypeMap.get(names[i]);
+            }
+            String[] order = names;
+            creator = values -> {
+                Map<String, Object> rowData = new HashMap<>(order.length);
+                for (int i = 0; i < order.length; i++) {
+                    rowData.put(order[i], values[i]);
+                }
+                return createProxy(rowType, rowData);
+            };
+        } else {
+            List<Constructor<?>> constructors = Arrays.stream(rowType.getConstructors())
+                .filter(c -> !c.isSynthetic())
+                .collect(Collectors.toList());
+            if (constructors.size() != 1)
+                throw new SQLGException("Should be only one constructor for " + rowType.getCanonicalName());
+            Constructor<?> constructor = constructors.get(0);
+            types = constructor.getParameterTypes();
+            names = getFieldNames(rowType, types.length);
+            creator = values -> {
+                try {
+                    return constructor.newInstance(values);
+                } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+                    throw new SQLGException("Cannot invoke row constructor for " + rowType.getCanonicalName(), ex);
+                }
+            };
+        }
+        if (meta) {
+            for (Class<?> type : types) {
+                if (!MetaColumn.class.equals(type))
+                    throw new SQLGException("Meta row type should contain only MetaColumns in " + rowType.getCanonicalName());
+            }
+        }
+        return new RowTypeFactory<>(rowType, meta, names, types, creator);
+    }
+
+    T newInstance(Object[] values) {
+        return rowType.cast(creator.create(values));
+    }
+
+    private static boolean isNumeric(Class<?> cls) {
+        return cls.isPrimitive() && !boolean.class.equals(cls) && !char.class.equals(cls) || Number.class.isAssignableFrom(cls);
+    }
+
+    private static boolean isDateTime(Class<?> cls) {
+        return java.util.Date.class.isAssignableFrom(cls);
+    }
+
+    private static boolean isNumeric(int jdbcType) {
+        switch (jdbcType) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+        case Types.FLOAT:
+        case Types.REAL:
+        case Types.DOUBLE:
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isDateTime(int jdbcType) {
+        switch (jdbcType) {
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+        case Types.TIME_WITH_TIMEZONE:
+        case Types.TIMESTAMP_WITH_TIMEZONE:
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isBinary(int jdbcType) {
+        switch (jdbcType) {
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Detects only obvious mismatches, so custom mappers and driver-specific conversions are not rejected.
+     */
+    private static boolean isIncompatible(Class<?> fieldType, int jdbcType) {
+        if (isNumeric(fieldType)) {
+            return isDateTime(jdbcType) || isBinary(jdbcType);
+        } else if (isDateTime(fieldType)) {
+            return isNumeric(jdbcType) || isBinary(jdbcType);
+        } else if (byte[].class.equals(fieldType)) {
+            return isNumeric(jdbcType) || isDateTime(jdbcType);
+        } else {
+            return false;
+        }
+    }
+
+    private static String columnList(ResultSetMetaData rsmd) throws SQLException {
+        int count = rsmd.getColumnCount();
+        StringBuilder buf = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            if (i > 1)
+                buf.append(", ");
+            buf.append(rsmd.getColumnLabel(i));
+        }
+        return buf.toString();
+    }
 
-    T fetch(RuntimeMapper mappers, ResultSet rs) throws SQLException;
+    /**
+     * Checks that result set columns match row type fields.
+     *
+     * @param mappers field mappers, null for meta row types
+     */
+    void check(ResultSetMetaData rsmd, TypeMapper<?>[] mappers) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        int required = 0;
+        for (int i = 0; i < types.length; i++) {
+            required += mappers == null ? 1 : mappers[i].getResultSetColumns();
+        }
+        if (columnCount != required) {
+            throw new SQLGException(
+                "Different number of columns in query (" + columnCount + ": " + columnList(rsmd) + ") and " +
+                rowType.getCanonicalName() + " (" + required + ": " + String.join(", ", names) + ")"
+            );
+        }
+        if (mappers == null)
+            return;
+        int index = 1;
+        for (int i = 0; i < types.length; i++) {
+            int columns = mappers[i].getResultSetColumns();
+            if (columns == 1) {
+                int jdbcType = rsmd.getColumnType(index);
+                if (isIncompatible(types[i], jdbcType)) {
+                    throw new SQLGException(
+                        "Column " + index + " (" + rsmd.getColumnLabel(index) + ") of type " + rsmd.getColumnTypeName(index) +
+                        " cannot be fetched to field " + names[i] + " of type " + types[i].getCanonicalName() +
+                        " in " + rowType.getCanonicalName()
+                    );
+                }
+            }
+            index += columns;
+        }
+    }
 }
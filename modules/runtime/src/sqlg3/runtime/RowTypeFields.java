@@ -0,0 +1,120 @@
+package sqlg3.runtime;
+
+import sqlg3.core.SQLGException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * For internal use.
+ * Stores methods to extract field values from row type class instances (reverse of {@link RowTypeFactory}).
+ */
+final class RowTypeFields {
+
+    final Class<?> rowType;
+    final String[] names;
+    final Class<?>[] types;
+    private final Method[] getters;
+
+    private RowTypeFields(Class<?> rowType, String[] names, Class<?>[] types, Method[] getters) {
+        this.rowType = rowType;
+        this.names = names;
+        this.types = types;
+        this.getters = getters;
+    }
+
+    private static String[] getOrderField(Class<?> rowType) {
+        try {
+            Field orderField = rowType.getDeclaredField(GlobalContext.ORDER_FIELD);
+            return (String[]) orderField.get(null);
+        } catch (IllegalAccessException | NoSuchFieldException | RuntimeException ex) {
+            throw new SQLGException("Cannot get fields order for " + rowType.getCanonicalName(), ex);
+        }
+    }
+
+    /**
+     * Returns record component names (in canonical constructor order), or null if class is not a record.
+     */
+    private static String[] getRecordComponents(Class<?> rowType) {
+        try {
+            Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(rowType);
+            if (components == null)
+                return null;
+            Method getName = components.getClass().getComponentType().getMethod("getName");
+            String[] names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = (String) getName.invoke(components[i]);
+            }
+            return names;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns field names in the order of row type constructor parameters (the order used by {@link RowTypeFactory}).
+     * Order of {@link Class#getDeclaredFields()} is not specified, so it is not used.
+     */
+    private static String[] getConstructorOrder(Class<?> rowType) {
+        String[] recordNames = getRecordComponents(rowType);
+        if (recordNames != null)
+            return recordNames;
+        List<Constructor<?>> constructors = Arrays.stream(rowType.getConstructors())
+            .filter(c -> !c.isSynthetic())
+            .collect(Collectors.toList());
+        if (constructors.size() != 1)
+            throw new SQLGException("Should be only one constructor for " + rowType.getCanonicalName());
+        Parameter[] parameters = constructors.get(0).getParameters();
+        if (Arrays.stream(parameters).allMatch(Parameter::isNamePresent)) {
+            return Arrays.stream(parameters).map(Parameter::getName).toArray(String[]::new);
+        }
+        // Generated row type classes declare field order explicitly
+        String[] names = getOrderField(rowType);
+        if (names.length != parameters.length) {
+            throw new SQLGException(
+                "Field order of " + rowType.getCanonicalName() + " does not match its constructor, regenerate row type"
+            );
+        }
+        return names;
+    }
+
+    static RowTypeFields create(Class<?> rowType) {
+        String[] names;
+        if (rowType.isInterface()) {
+            names = getOrderField(rowType);
+        } else {
+            names = getConstructorOrder(rowType);
+        }
+        Class<?>[] types = new Class[names.length];
+        Method[] getters = new Method[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Method getter;
+            try {
+                getter = rowType.getMethod(names[i]);
+            } catch (NoSuchMethodException ex) {
+                throw new SQLGException("Cannot find getter " + names[i] + " in " + rowType.getCanonicalName());
+            }
+            getters[i] = getter;
+            types[i] = getter.getReturnType();
+        }
+        return new RowTypeFields(rowType, names, types, getters);
+    }
+
+    Object[] getValues(Object row) {
+        Object[] values = new Object[getters.length];
+        for (int i = 0; i < getters.length; i++) {
+            try {
+                values[i] = getters[i].invoke(row);
+            } catch (IllegalAccessException | InvocationTargetException ex) {
+                throw new SQLGException("Cannot get field " + names[i] + " of " + rowType.getCanonicalName(), ex);
+            }
+        }
+        return values;
+    }
+}
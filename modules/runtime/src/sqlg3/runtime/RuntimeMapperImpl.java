@@ -2,12 +2,22 @@ package sqlg3.runtime;
 
 import sqlg3.core.SQLGException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.sql.*;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class RuntimeMapperImpl implements RuntimeMapper {
 
+    /**
+     * Default size of large objects fetched into memory by {@link BinaryStreamMapper} and {@link CharacterStreamMapper}
+     */
+    public static final int LOB_INLINE_LIMIT = 64 * 1024;
+
     private final Map<Class<?>, TypeMapper<?>> mappers = new ConcurrentHashMap<>();
 
     public final <T> void register(TypeMapper<T> mapper) {
@@ -154,6 +164,121 @@ public class RuntimeMapperImpl implements RuntimeMapper {
         }
     }
 
+    /**
+     * Returns true if column is large object which should be read by {@link Blob}/{@link Clob} locator. Values of other
+     * columns (like PostgreSQL <code>bytea</code> and <code>text</code>) cannot be read as large objects by some drivers.
+     */
+    private static boolean isLobColumn(ResultSet rs, int index) throws SQLException {
+        int type = rs.getMetaData().getColumnType(index);
+        return type == Types.BLOB || type == Types.CLOB || type == Types.NCLOB;
+    }
+
+    /**
+     * Maps {@link InputStream} to binary column. Parameters are bound by {@link PreparedStatement#setBinaryStream}.
+     * Values not longer than {@code inlineLimit} are fetched into memory. Longer values of BLOB columns are streamed
+     * from {@link Blob} and stay valid until the end of business method call, longer values of other binary columns
+     * are copied to temporary file deleted when stream is closed.
+     */
+    public static final class BinaryStreamMapper extends TypeMapper<InputStream> {
+
+        private final int inlineLimit;
+
+        public BinaryStreamMapper(int inlineLimit) {
+            super(InputStream.class);
+            this.inlineLimit = inlineLimit;
+        }
+
+        @Override
+        public InputStream fetch(ResultSet rs, int index) throws SQLException {
+            if (!isLobColumn(rs, index)) {
+                InputStream in = rs.getBinaryStream(index);
+                if (in == null)
+                    return null;
+                try {
+                    return LobStreams.fetchBinary(in, inlineLimit);
+                } catch (IOException ex) {
+                    throw new SQLException(ex);
+                }
+            }
+            Blob blob = rs.getBlob(index);
+            if (blob == null)
+                return null;
+            long length = blob.length();
+            if (length <= inlineLimit) {
+                byte[] bytes = blob.getBytes(1, (int) length);
+                try {
+                    blob.free();
+                } catch (AbstractMethodError ex) {
+                    // JDBC 3 driver
+                }
+                return new ByteArrayInputStream(bytes);
+            }
+            return new LobStreams.BlobStream(blob);
+        }
+
+        @Override
+        public void set(PreparedStatement stmt, int index, InputStream value) throws SQLException {
+            if (value == null) {
+                stmt.setNull(index, Types.BLOB);
+            } else {
+                stmt.setBinaryStream(index, value);
+            }
+        }
+    }
+
+    /**
+     * Maps {@link Reader} to character column. Parameters are bound by {@link PreparedStatement#setCharacterStream}.
+     * Values not longer than {@code inlineLimit} are fetched into memory. Longer values of CLOB columns are streamed
+     * from {@link Clob} and stay valid until the end of business method call, longer values of other character columns
+     * are copied to temporary file deleted when reader is closed.
+     */
+    public static final class CharacterStreamMapper extends TypeMapper<Reader> {
+
+        private final int inlineLimit;
+
+        public CharacterStreamMapper(int inlineLimit) {
+            super(Reader.class);
+            this.inlineLimit = inlineLimit;
+        }
+
+        @Override
+        public Reader fetch(ResultSet rs, int index) throws SQLException {
+            if (!isLobColumn(rs, index)) {
+                Reader in = rs.getCharacterStream(index);
+                if (in == null)
+                    return null;
+                try {
+                    return LobStreams.fetchCharacter(in, inlineLimit);
+                } catch (IOException ex) {
+                    throw new SQLException(ex);
+                }
+            }
+            Clob clob = rs.getClob(index);
+            if (clob == null)
+                return null;
+            long length = clob.length();
+            if (length <= inlineLimit) {
+                String text = clob.getSubString(1, (int) length);
+                try {
+                    clob.free();
+                } catch (AbstractMethodError ex) {
+                    // JDBC 3 driver
+                }
+                return new StringReader(text);
+            }
+            return new LobStreams.ClobReader(clob);
+        }
+
+        @Override
+        public void set(PreparedStatement stmt, int index, Reader value) throws SQLException {
+            if (value == null) {
+                stmt.setNull(index, Types.CLOB);
+            } else {
+                stmt.setCharacterStream(index, value);
+            }
+        }
+    }
+
     public RuntimeMapperImpl() {
         registerDefault();
     }
@@ -202,5 +327,14 @@ public class RuntimeMapperImpl implements RuntimeMapper {
         register(new BasicMapper<>(
             Time.class, Types.TIME, PreparedStatement::setTime, ResultSet::getTime, CallableStatement::getTime
         ));
+
+        register(new BinaryStreamMapper(LOB_INLINE_LIMIT));
+        register(new CharacterStreamMapper(LOB_INLINE_LIMIT));
+        register(new BasicMapper<>(
+            Blob.class, Types.BLOB, PreparedStatement::setBlob, ResultSet::getBlob, CallableStatement::getBlob
+        ));
+        register(new BasicMapper<>(
+            Clob.class, Types.CLOB, PreparedStatement::setClob, ResultSet::getClob, CallableStatement::getClob
+        ));
     }
 }
@@ -0,0 +1,124 @@
+package sqlg3.runtime;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Connection manager for horizontally partitioned databases: each shard has its own connection manager (pool).
+ * Shard of business call is determined by the value of its parameter marked with {@link sqlg3.core.ShardKey}
+ * or, if there is no such parameter, by the session user object. One transaction cannot span several shards.
+ * Use {@link GBase#scatterGather} to query all shards.
+ */
+public class ShardedConnectionManager implements ConnectionManager {
+
+    /**
+     * Maps shard key to shard index
+     */
+    public interface ShardFunction {
+
+        /**
+         * @param key shard key (not null)
+         * @param shardCount number of shards
+         * @return shard index from 0 to shardCount - 1
+         */
+        int getShard(Object key, int shardCount);
+    }
+
+    private static final ClassValue<Boolean> VALUE_HASH = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                Class<?> declaring = type.getMethod("hashCode").getDeclaringClass();
+                return !Object.class.equals(declaring) && !Enum.class.equals(declaring);
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * Shard function using {@link Object#hashCode()} of the key. Key should have value-based hash code which is the same
+     * in all sessions and JVMs (like {@link String} or {@link Number}), otherwise the same key would be mapped
+     * to different shards. Keys with identity hash code (classes not overriding {@link Object#hashCode()} and enums)
+     * are rejected with {@link IllegalArgumentException}: use shard key parameter or custom shard function for them.
+     */
+    public static final ShardFunction HASH = (key, shardCount) -> {
+        if (!VALUE_HASH.get(key.getClass()))
+            throw new IllegalArgumentException("Shard key of " + key.getClass().getName() + " has no value-based hashCode");
+        return Math.floorMod(key.hashCode(), shardCount);
+    };
+
+    protected final List<ConnectionManager> shards;
+    private final ShardFunction shardFunction;
+    private final Map<Connection, ConnectionManager> owners = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public ShardedConnectionManager(List<? extends ConnectionManager> shards, ShardFunction shardFunction) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.shardFunction = shardFunction;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public int getShard(Object key) {
+        if (key == null)
+            throw new IllegalArgumentException("Shard key is null");
+        return shardFunction.getShard(key, shards.size());
+    }
+
+    /**
+     * Allocates connection to the given shard. It is released by {@link #releaseConnection(Connection)}.
+     */
+    public Connection allocConnection(int shard) throws SQLException {
+        ConnectionManager cman = shards.get(shard);
+        Connection conn = cman.allocConnection();
+        owners.put(conn, cman);
+        return conn;
+    }
+
+    /**
+     * Always throws exception: shard should be known to allocate connection.
+     */
+    public Connection allocConnection() throws SQLException {
+        throw new SQLException("Cannot determine shard: no shard key parameter and no session user object");
+    }
+
+    private ConnectionManager getOwner(Connection conn) throws SQLException {
+        ConnectionManager cman = owners.get(conn);
+        if (cman == null)
+            throw new SQLException("Connection is not allocated by this connection manager");
+        return cman;
+    }
+
+    public void releaseConnection(Connection conn) throws SQLException {
+        getOwner(conn).releaseConnection(conn);
+        owners.remove(conn);
+    }
+
+    public void commit(Connection conn) throws SQLException {
+        getOwner(conn).commit(conn);
+    }
+
+    public void rollback(Connection conn) throws SQLException {
+        getOwner(conn).rollback(conn);
+    }
+
+    public void close() throws SQLException {
+        SQLException error = null;
+        for (ConnectionManager cman : shards) {
+            try {
+                cman.close();
+            } catch (SQLException ex) {
+                if (error == null) {
+                    error = ex;
+                } else {
+                    error.addSuppressed(ex);
+                }
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+}
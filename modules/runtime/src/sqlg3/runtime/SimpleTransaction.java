@@ -1,13 +1,25 @@
 package sqlg3.runtime;
 
+import sqlg3.core.CallBatch;
 import sqlg3.core.IDBCommon;
 import sqlg3.core.ISimpleTransaction;
+import sqlg3.core.SQLGException;
 
-public final class SimpleTransaction implements ISimpleTransaction {
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
+public final class SimpleTransaction implements ISimpleTransaction, CallBatch.Executor, MethodInvoker {
+
+    private final GlobalContext global;
+    private final SessionContext session;
     private final TransactionContext transaction;
 
     public SimpleTransaction(GlobalContext global, SessionContext session) {
+        this.global = global;
+        this.session = session;
         this.transaction = new TransactionContext(global, session);
     }
 
@@ -15,4 +27,55 @@ public final class SimpleTransaction implements ISimpleTransaction {
     public <T extends IDBCommon> T getInterface(Class<T> iface) {
         return transaction.getInterface(iface, true);
     }
+
+    @Override
+    public Object invoke(Class<? extends IDBCommon> iface, Method method, Object[] args) throws InvocationTargetException {
+        try {
+            return transaction.invoke(iface, method, args, true);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Executes all calls in one transaction, which is committed only if all calls succeed.
+     */
+    @Override
+    public List<CallBatch.Result> executeBatch(List<CallBatch.Call> calls) throws SQLException {
+        List<Method> methods = new ArrayList<>(calls.size());
+        for (CallBatch.Call call : calls) {
+            try {
+                methods.add(call.iface.getMethod(call.method, call.paramTypes));
+            } catch (NoSuchMethodException ex) {
+                throw new SQLGException("Error calling " + call, ex);
+            }
+        }
+        return executeBatch(calls, methods);
+    }
+
+    /**
+     * Executes all calls in one transaction, which is committed only if all calls succeed.
+     *
+     * @param methods interface methods of calls (with the same index), resolved by caller
+     */
+    public List<CallBatch.Result> executeBatch(List<CallBatch.Call> calls, List<Method> methods) throws SQLException {
+        Transaction batchTransaction = new Transaction(global, session);
+        List<CallBatch.Result> results;
+        try {
+            results = batchTransaction.executeCalls(calls, methods);
+        } catch (RuntimeException | Error ex) {
+            try {
+                batchTransaction.rollback();
+            } catch (SQLException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            throw ex;
+        }
+        if (results.stream().anyMatch(CallBatch::isFailure)) {
+            batchTransaction.rollback();
+        } else {
+            batchTransaction.commit();
+        }
+        return results;
+    }
 }
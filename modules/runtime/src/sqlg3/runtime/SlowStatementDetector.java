@@ -0,0 +1,132 @@
+package sqlg3.runtime;
+
+import sqlg3.runtime.queries.QueryParser;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Captures execution plans of statements running longer than threshold.
+ * Plans are captured asynchronously on a separate connection, so business calls are not delayed.
+ * Set {@link GlobalContext#slowStatements} to enable detector.
+ * <p>
+ * Rate limiting: plan of the same SQL text is captured at most once per {@code minInterval},
+ * and statements which do not fit into the queue are dropped.
+ */
+public final class SlowStatementDetector {
+
+    private static final int MAX_TRACKED_SQL = 1000;
+
+    private final ConnectionManager cman;
+    private final long threshold;
+    private final long minInterval;
+    private final ExplainSink sink;
+    private final ConcurrentMap<String, Long> lastCaptured = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param cman connections for EXPLAIN (should not be the connections used by business calls)
+     * @param threshold statement time in milliseconds after which plan is captured
+     * @param minInterval minimum time in milliseconds between captures of the same SQL
+     * @param queueSize maximum number of pending captures
+     */
+    public SlowStatementDetector(ConnectionManager cman, long threshold, long minInterval, int queueSize,
+                                 ExplainSink sink) {
+        this.cman = cman;
+        this.threshold = threshold;
+        this.minInterval = minInterval;
+        this.sink = sink;
+        this.executor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+            r -> {
+                Thread thread = new Thread(r, "SQLG slow statement detector");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy()
+        );
+    }
+
+    private boolean acquire(String sql) {
+        long now = System.currentTimeMillis();
+        if (lastCaptured.size() > MAX_TRACKED_SQL) {
+            lastCaptured.values().removeIf(time -> now - time >= minInterval);
+        }
+        Long prev = lastCaptured.get(sql);
+        if (prev != null && now - prev < minInterval)
+            return false;
+        if (prev == null) {
+            return lastCaptured.putIfAbsent(sql, now) == null;
+        } else {
+            return lastCaptured.replace(sql, prev, now);
+        }
+    }
+
+    private static String paramsToString(Parameter[] params) {
+        if (params == null || params.length <= 0)
+            return null;
+        StringBuilder buf = new StringBuilder("(");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(params[i]);
+        }
+        buf.append(")");
+        return buf.toString();
+    }
+
+    private List<String> explain(GlobalContext global, String sql, Parameter[] params) throws SQLException {
+        Connection conn = cman.allocConnection();
+        try {
+            // Statement SQL is stored unparsed (with special columns), EXPLAIN needs SQL sent to the database
+            return global.db.explain(conn, global.mappers, QueryParser.parseQuery(sql), params);
+        } finally {
+            try {
+                cman.rollback(conn);
+            } finally {
+                cman.releaseConnection(conn);
+            }
+        }
+    }
+
+    private void capture(GlobalContext global, String sql, Parameter[] params, long time) {
+        List<String> plan;
+        try {
+            plan = explain(global, sql, params);
+        } catch (SQLException | RuntimeException ex) {
+            plan = Collections.singletonList("Cannot capture plan: " + ex);
+        }
+        sink.slowStatement(sql, paramsToString(params), time, plan);
+    }
+
+    /**
+     * Invoked on the caller's thread after statement is executed and its results are fetched.
+     * Plan is captured later on the detector thread, so this method does not block.
+     *
+     * @param time statement time in milliseconds
+     */
+    void statementFinished(GlobalContext global, String sql, Parameter[] params, long time) {
+        if (time < threshold)
+            return;
+        if (params != null) {
+            for (Parameter param : params) {
+                if (param.isOut())
+                    return;
+            }
+        }
+        if (!acquire(sql))
+            return;
+        executor.execute(() -> capture(global, sql, params, time));
+    }
+
+    /**
+     * Stops detector thread. Does not close connection manager.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,50 @@
+package sqlg3.runtime;
+
+import sqlg3.core.SQLGException;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statements of concurrently running tasks, cancelled together when one of the tasks fails.
+ * Interrupting a thread does not stop JDBC execute or fetch, so {@link Statement#cancel()} is used.
+ */
+final class StatementCanceller {
+
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    /**
+     * Registers statement created by a task.
+     *
+     * @throws SQLGException if tasks are already cancelled
+     */
+    void register(Statement stmt) {
+        statements.add(stmt);
+        // cancel() sets flag before iterating, so statement is either cancelled there or rejected here
+        if (cancelled) {
+            statements.remove(stmt);
+            throw new SQLGException("Concurrent query is cancelled");
+        }
+    }
+
+    void unregister(Statement stmt) {
+        statements.remove(stmt);
+    }
+
+    /**
+     * Cancels all registered statements, statements registered later are rejected.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Statement stmt : statements) {
+            try {
+                stmt.cancel();
+            } catch (SQLException ex) {
+                // ignore
+            }
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package sqlg3.runtime;
 
+import sqlg3.core.CallBatch;
 import sqlg3.core.IDBCommon;
 import sqlg3.core.ITransaction;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
-public final class Transaction implements ITransaction {
+public final class Transaction implements ITransaction, MethodInvoker {
 
     private final TransactionContext transaction;
 
@@ -18,6 +23,38 @@ public final class Transaction implements ITransaction {
         return transaction.getInterface(iface, false);
     }
 
+    @Override
+    public Object invoke(Class<? extends IDBCommon> iface, Method method, Object[] args) throws InvocationTargetException {
+        try {
+            return transaction.invoke(iface, method, args, false);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Executes calls in this transaction one by one until the first failure (see {@link CallBatch#executeCalls}),
+     * without creating interface proxies.
+     *
+     * @param methods interface methods of calls (with the same index)
+     */
+    public List<CallBatch.Result> executeCalls(List<CallBatch.Call> calls, List<Method> methods) {
+        List<CallBatch.Result> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            CallBatch.Call call = calls.get(i);
+            CallBatch.Result result;
+            try {
+                result = new CallBatch.Result(transaction.invoke(call.iface, methods.get(i), call.params, false), null);
+            } catch (Throwable ex) {
+                result = new CallBatch.Result(null, ex);
+            }
+            results.add(result);
+            if (CallBatch.isFailure(result))
+                break;
+        }
+        return results;
+    }
+
     @Override
     public void commit() throws SQLException {
         transaction.commit();
@@ -2,6 +2,7 @@ package sqlg3.runtime;
 
 import sqlg3.core.IDBCommon;
 import sqlg3.core.InformationException;
+import sqlg3.core.ReadOnlyCall;
 import sqlg3.core.SQLGException;
 
 import java.lang.reflect.InvocationTargetException;
@@ -9,6 +10,13 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 final class TransactionContext {
 
@@ -17,72 +25,161 @@ final class TransactionContext {
 
     private final Object connLock = new Object();
     private Connection connection = null;
+    private int connectionShard = -1;
+
+    /**
+     * {@link BatchLoader} states memoized until the end of transaction
+     */
+    private final Map<Object, BatchLoader.State<?, ?>> loaders = new ConcurrentHashMap<>();
 
     TransactionContext(GlobalContext global, SessionContext session) {
         this.global = global;
         this.session = session;
     }
 
-    Connection getConnection() throws SQLException {
+    /**
+     * @param readOnly true if connection is allocated for read-only call; used only when this is the first
+     *                 call in transaction and connection manager supports read-only connections
+     * @param shard shard index for {@link ShardedConnectionManager}, -1 if not known
+     */
+    Connection getConnection(boolean readOnly, int shard) throws SQLException {
         synchronized (connLock) {
+            if (connection != null && shard >= 0 && connectionShard >= 0 && shard != connectionShard) {
+                throw new SQLGException("Transaction cannot span several shards (" + connectionShard + " and " + shard + ")");
+            }
             if (connection == null) {
-                connection = session.cman.allocConnection();
+                if (session.cman instanceof ShardedConnectionManager) {
+                    if (shard < 0)
+                        throw new SQLGException("Cannot determine shard: no shard key parameter and no session user object");
+                    connection = ((ShardedConnectionManager) session.cman).allocConnection(shard);
+                    connectionShard = shard;
+                } else if (readOnly && session.cman instanceof ReadOnlyConnectionManager) {
+                    connection = ((ReadOnlyConnectionManager) session.cman).allocReadOnlyConnection();
+                } else {
+                    connection = session.cman.allocConnection();
+                }
             }
             return connection;
         }
     }
 
+    /**
+     * Allocates connection not bound to this transaction (it should be released by session connection manager).
+     * For {@link ShardedConnectionManager} connection is allocated on the given shard, or on the shard of
+     * this transaction if shard is not known.
+     *
+     * @param shard shard index, -1 if not known
+     */
+    Connection allocSeparateConnection(int shard) throws SQLException {
+        if (session.cman instanceof ShardedConnectionManager) {
+            int useShard = shard;
+            if (useShard < 0) {
+                synchronized (connLock) {
+                    useShard = connectionShard;
+                }
+            }
+            if (useShard < 0)
+                throw new SQLGException("Cannot determine shard: no shard key parameter and no session user object");
+            return ((ShardedConnectionManager) session.cman).allocConnection(useShard);
+        } else {
+            return session.cman.allocConnection();
+        }
+    }
+
+    private int getShard(Method method, Object[] args) {
+        if (!(session.cman instanceof ShardedConnectionManager))
+            return -1;
+        int keyParam = global.getShardKeyParameter(method);
+        Object key = keyParam >= 0 ? args[keyParam] : session.getUserObject();
+        if (key == null)
+            return -1;
+        return ((ShardedConnectionManager) session.cman).getShard(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    <K, T> BatchLoader.State<K, T> getLoaderState(Object id) {
+        return (BatchLoader.State<K, T>) loaders.computeIfAbsent(id, k -> new BatchLoader.State<>());
+    }
+
     @SuppressWarnings("unchecked")
     <T extends IDBCommon> T getInterface(Class<T> iface, boolean commitCalls) {
         ClassLoader classLoader = iface.getClassLoader();
-        return (T) Proxy.newProxyInstance(classLoader, new Class[] {iface}, (proxy, method, args) -> {
-            boolean success = false;
-            Object result = null;
-            Throwable error = null;
+        return (T) Proxy.newProxyInstance(classLoader, new Class[] {iface}, (proxy, method, args) -> invoke(iface, method, args, commitCalls));
+    }
+
+    /**
+     * Reads {@link Stream} or {@link Iterator} result to the end while the call is still open.
+     * Lazy results (like {@link GBase#keysetPages}) read from statements and connection of the call,
+     * which are closed when the call ends, so they cannot be read after DAO method returns.
+     * Errors are thrown by the call itself, not later while result is read (or sent to remote client).
+     */
+    private static Object materialize(Object result) {
+        if (result instanceof Stream) {
+            List<Object> list;
+            try (Stream<?> stream = (Stream<?>) result) {
+                list = stream.collect(Collectors.toList());
+            }
+            return list.stream();
+        } else if (result instanceof Iterator) {
+            List<Object> list = new ArrayList<>();
+            ((Iterator<?>) result).forEachRemaining(list::add);
+            return list.iterator();
+        }
+        return result;
+    }
+
+    /**
+     * Calls DAO method corresponding to business interface method.
+     */
+    Object invoke(Class<?> iface, Method method, Object[] args, boolean commitCalls) throws Throwable {
+        boolean success = false;
+        Object result = null;
+        Throwable error = null;
+        try {
+            ImplCache cached = global.getImpl(iface);
+            Method daoMethod = cached.getDaoMethod(method);
+            if (session.beforeCall != null) {
+                session.beforeCall.accept(daoMethod);
+            }
+            boolean readOnly = commitCalls && method.isAnnotationPresent(ReadOnlyCall.class);
+            int shard = getShard(method, args);
+            try (GContext ctx = new GContext(global, session, this, daoMethod, readOnly, shard)) {
+                Object instance = cached.constructor.newInstance(ctx);
+                result = materialize(daoMethod.invoke(instance, args));
+                ctx.ok();
+            }
+            success = true;
+        } catch (InvocationTargetException ex) {
+            Throwable target = ex.getTargetException();
+            if (target instanceof InformationException) {
+                InformationException informationException = (InformationException) target;
+                success = !informationException.error;
+            }
+            error = target;
+        } catch (ReflectiveOperationException ex) {
+            error = new SQLGException("Error calling DAO method " + iface.getCanonicalName() + "." + method.getName(), ex);
+        } catch (Throwable ex) {
+            error = ex;
+        }
+        if (commitCalls) {
             try {
-                ImplCache cached = global.getImpl(iface);
-                Method daoMethod = cached.dao.getMethod(method.getName(), method.getParameterTypes());
-                if (session.beforeCall != null) {
-                    session.beforeCall.accept(daoMethod);
-                }
-                try (GContext ctx = new GContext(global, session, this)) {
-                    Object instance = cached.constructor.newInstance(ctx);
-                    result = daoMethod.invoke(instance, args);
-                    ctx.ok();
+                if (success) {
+                    commit();
+                } else {
+                    rollback();
                 }
-                success = true;
-            } catch (InvocationTargetException ex) {
-                Throwable target = ex.getTargetException();
-                if (target instanceof InformationException) {
-                    InformationException informationException = (InformationException) target;
-                    success = !informationException.error;
-                }
-                error = target;
-            } catch (ReflectiveOperationException ex) {
-                error = new SQLGException("Error calling DAO method " + iface.getCanonicalName() + "." + method.getName(), ex);
-            } catch (Throwable ex) {
-                error = ex;
-            }
-            if (commitCalls) {
-                try {
-                    if (success) {
-                        commit();
-                    } else {
-                        rollback();
-                    }
-                } catch (SQLException ex) {
-                    if (error != null) {
-                        error.addSuppressed(ex);
-                    } else {
-                        error = ex;
-                    }
+            } catch (SQLException ex) {
+                if (error != null) {
+                    error.addSuppressed(ex);
+                } else {
+                    error = ex;
                 }
             }
-            if (error != null) {
-                throw error;
-            }
-            return result;
-        });
+        }
+        if (error != null) {
+            throw error;
+        }
+        return result;
     }
 
     private void releaseConnection(SQLException error) throws SQLException {
@@ -96,6 +193,7 @@ final class TransactionContext {
             }
         } finally {
             connection = null;
+            connectionShard = -1;
         }
         if (error != null) {
             throw error;
@@ -103,6 +201,7 @@ final class TransactionContext {
     }
 
     void commit() throws SQLException {
+        loaders.clear();
         synchronized (connLock) {
             if (connection == null)
                 return;
@@ -123,6 +222,7 @@ final class TransactionContext {
     }
 
     void rollback() throws SQLException {
+        loaders.clear();
         synchronized (connLock) {
             if (connection == null)
                 return;
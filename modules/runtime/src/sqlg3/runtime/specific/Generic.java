@@ -1,17 +1,179 @@
 package sqlg3.runtime.specific;
 
+import sqlg3.runtime.BulkLoad;
 import sqlg3.runtime.DBSpecific;
+import sqlg3.runtime.Parameter;
+import sqlg3.runtime.QueryPiece;
+import sqlg3.runtime.RuntimeMapper;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * {@link DBSpecific} implementation for generic JDBC database.
  */
 public class Generic implements DBSpecific {
 
+    /**
+     * Number of rows sent to the database in one JDBC batch by {@link #batchInsert}
+     */
+    public static final int BATCH_SIZE = 1000;
+
     @Override
     public long getNextId(Connection conn, String sequence) throws SQLException {
         throw new SQLException("Database does not support sequences");
     }
+
+    /**
+     * Inserts rows using JDBC batches of given size.
+     */
+    public static long batchInsert(Connection conn, RuntimeMapper mappers, BulkLoad load, int batchSize) throws SQLException {
+        return batchExecute(conn, mappers, load, load.getInsertSql(), batchSize);
+    }
+
+    /**
+     * Executes single-row statement for all rows using JDBC batches of given size
+     * (or one by one if batches are not supported, see {@link BulkLoad#batchUpdates}).
+     *
+     * @param sql statement with parameters for all columns of {@code load}
+     */
+    public static long batchExecute(Connection conn, RuntimeMapper mappers, BulkLoad load, String sql, int batchSize) throws SQLException {
+        long count = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int inBatch = 0;
+            while (load.rows.hasNext()) {
+                load.setRow(mappers, stmt, load.rows.next());
+                if (!load.batchUpdates) {
+                    stmt.executeUpdate();
+                    count++;
+                    continue;
+                }
+                stmt.addBatch();
+                count++;
+                if (++inBatch >= batchSize) {
+                    stmt.executeBatch();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) {
+                stmt.executeBatch();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long bulkLoad(Connection conn, RuntimeMapper mappers, BulkLoad load) throws SQLException {
+        return batchInsert(conn, mappers, load, BATCH_SIZE);
+    }
+
+    @Override
+    public String getUpsertSql(BulkLoad load, String[] keyColumns) throws SQLException {
+        throw new SQLException("Database does not support upsert");
+    }
+
+    @Override
+    public long upsert(Connection conn, RuntimeMapper mappers, BulkLoad load, String[] keyColumns) throws SQLException {
+        return batchExecute(conn, mappers, load, getUpsertSql(load, keyColumns), BATCH_SIZE);
+    }
+
+    /**
+     * Executes EXPLAIN query and returns first column of all rows as plan lines.
+     *
+     * @param explainSql EXPLAIN query with the same parameters as original statement
+     */
+    public static List<String> queryPlan(Connection conn, RuntimeMapper mappers, String explainSql, Parameter[] params) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(explainSql)) {
+            Parameter.setParameters(mappers, stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString(1));
+                }
+            }
+        }
+        return plan;
+    }
+
+    @Override
+    public List<String> explain(Connection conn, RuntimeMapper mappers, String sql, Parameter[] params) throws SQLException {
+        throw new SQLException("Database does not support EXPLAIN");
+    }
+
+    @Override
+    public String exportSnapshot(Connection conn) throws SQLException {
+        throw new SQLException("Database does not support snapshot export");
+    }
+
+    @Override
+    public void importSnapshot(Connection conn, String snapshot) throws SQLException {
+        throw new SQLException("Database does not support snapshot export");
+    }
+
+    /**
+     * Checks for SQLState 40001 (serialization failure), standard for most databases.
+     */
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            if ("40001".equals(e.getSQLState()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Uses standard {@code FETCH FIRST n ROWS ONLY} clause.
+     */
+    @Override
+    public String getLimitSql(String sql, int limit) {
+        return sql + "\nFETCH FIRST " + limit + " ROWS ONLY";
+    }
+
+    /**
+     * Returns {@code k1 > ? OR (k1 = ? AND k2 > ?) OR ...} condition for databases without row value comparison.
+     */
+    public static QueryPiece getExpandedKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        StringBuilder buf = new StringBuilder("(");
+        List<Parameter> params = new ArrayList<>();
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                buf.append(" OR ");
+            }
+            buf.append("(");
+            for (int j = 0; j < i; j++) {
+                buf.append(keyColumns[j]).append(" = ? AND ");
+                params.add(lastKey[j]);
+            }
+            buf.append(keyColumns[i]).append(" > ?)");
+            params.add(lastKey[i]);
+        }
+        buf.append(")");
+        return new QueryPiece(buf, params.toArray(new Parameter[0]));
+    }
+
+    /**
+     * Returns {@code (k1, k2, ...) > (?, ?, ...)} row value comparison.
+     */
+    public static QueryPiece getRowValueKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        StringBuilder buf = new StringBuilder("(");
+        buf.append(String.join(", ", keyColumns)).append(") > (");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append("?");
+        }
+        buf.append(")");
+        return new QueryPiece(buf, lastKey);
+    }
+
+    @Override
+    public QueryPiece getKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        return getExpandedKeyGreaterCondition(keyColumns, lastKey);
+    }
 }
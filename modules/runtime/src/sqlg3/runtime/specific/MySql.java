@@ -1,8 +1,61 @@
 package sqlg3.runtime.specific;
 
+import sqlg3.runtime.BulkLoad;
+import sqlg3.runtime.Parameter;
+import sqlg3.runtime.QueryPiece;
+import sqlg3.runtime.RuntimeMapper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
 /**
  * {@link sqlg3.runtime.DBSpecific} implementation for MySQL.
  */
 public final class MySql extends Generic {
 
+    @Override
+    public String getUpsertSql(BulkLoad load, String[] keyColumns) {
+        String[] update = load.getNonKeyColumns(keyColumns);
+        if (update.length <= 0) {
+            // Assigning key to itself makes duplicate rows no-op
+            update = keyColumns;
+        }
+        StringBuilder buf = new StringBuilder(load.getInsertSql());
+        buf.append(" ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < update.length; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append(update[i]).append(" = VALUES(").append(update[i]).append(")");
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public List<String> explain(Connection conn, RuntimeMapper mappers, String sql, Parameter[] params) throws SQLException {
+        return queryPlan(conn, mappers, "EXPLAIN FORMAT=JSON " + sql, params);
+    }
+
+    /**
+     * Checks for errors 1213 (deadlock) and 1205 (lock wait timeout) in addition to SQLState 40001.
+     */
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            int code = e.getErrorCode();
+            if (code == 1213 || code == 1205)
+                return true;
+        }
+        return super.isRetryable(ex);
+    }
+
+    @Override
+    public String getLimitSql(String sql, int limit) {
+        return sql + "\nLIMIT " + limit;
+    }
+
+    @Override
+    public QueryPiece getKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        return getRowValueKeyGreaterCondition(keyColumns, lastKey);
+    }
 }
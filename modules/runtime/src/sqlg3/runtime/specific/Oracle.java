@@ -1,17 +1,32 @@
 package sqlg3.runtime.specific;
 
+import sqlg3.runtime.BulkLoad;
 import sqlg3.runtime.DBSpecific;
+import sqlg3.runtime.Parameter;
+import sqlg3.runtime.QueryPiece;
+import sqlg3.runtime.RuntimeMapper;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link DBSpecific} implementation for Oracle.
  */
 public final class Oracle implements DBSpecific {
 
+    /**
+     * Oracle driver sends JDBC batch as a single array DML call, so larger batches are more effective
+     */
+    public static final int ARRAY_DML_SIZE = 5000;
+
+    private static final AtomicLong EXPLAIN_ID = new AtomicLong();
+
     public static String getNextSeqSql(String sequence) {
         return "SELECT " + sequence + ".NEXTVAL FROM DUAL";
     }
@@ -24,4 +39,149 @@ public final class Oracle implements DBSpecific {
             return rs.getLong(1);
         }
     }
+
+    @Override
+    public long bulkLoad(Connection conn, RuntimeMapper mappers, BulkLoad load) throws SQLException {
+        return Generic.batchInsert(conn, mappers, load, ARRAY_DML_SIZE);
+    }
+
+    @Override
+    public String getUpsertSql(BulkLoad load, String[] keyColumns) {
+        String[] update = load.getNonKeyColumns(keyColumns);
+        StringBuilder buf = new StringBuilder("MERGE INTO " + load.table + " t USING (SELECT ");
+        for (int i = 0; i < load.columns.length; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append("? ").append(load.columns[i]);
+        }
+        buf.append(" FROM DUAL) s ON (");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0)
+                buf.append(" AND ");
+            buf.append("t.").append(keyColumns[i]).append(" = s.").append(keyColumns[i]);
+        }
+        buf.append(")");
+        if (update.length > 0) {
+            buf.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < update.length; i++) {
+                if (i > 0)
+                    buf.append(", ");
+                buf.append("t.").append(update[i]).append(" = s.").append(update[i]);
+            }
+        }
+        buf.append(" WHEN NOT MATCHED THEN INSERT (").append(load.getColumnList()).append(") VALUES (");
+        for (int i = 0; i < load.columns.length; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append("s.").append(load.columns[i]);
+        }
+        buf.append(")");
+        return buf.toString();
+    }
+
+    @Override
+    public long upsert(Connection conn, RuntimeMapper mappers, BulkLoad load, String[] keyColumns) throws SQLException {
+        return Generic.batchExecute(conn, mappers, load, getUpsertSql(load, keyColumns), ARRAY_DML_SIZE);
+    }
+
+    /**
+     * Replaces JDBC parameters with Oracle bind variables (skipping string literals, quoted identifiers
+     * and comments), because EXPLAIN PLAN does not accept bound values.
+     */
+    public static String toBindVariables(String sql) {
+        StringBuilder buf = new StringBuilder(sql.length() + 16);
+        int param = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char ch = sql.charAt(i);
+            if (ch == '\'' || ch == '"') {
+                int end = sql.indexOf(ch, i + 1);
+                end = end < 0 ? sql.length() : end + 1;
+                buf.append(sql, i, end);
+                i = end;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? sql.length() : end + 1;
+                buf.append(sql, i, end);
+                i = end;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? sql.length() : end + 2;
+                buf.append(sql, i, end);
+                i = end;
+            } else {
+                if (ch == '?') {
+                    buf.append(':').append(++param);
+                } else {
+                    buf.append(ch);
+                }
+                i++;
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Runs EXPLAIN PLAN into PLAN_TABLE and formats it with DBMS_XPLAN.
+     * Parameter values are not used by EXPLAIN PLAN.
+     */
+    @Override
+    public List<String> explain(Connection conn, RuntimeMapper mappers, String sql, Parameter[] params) throws SQLException {
+        String statementId = "SQLG" + EXPLAIN_ID.incrementAndGet();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + statementId + "' FOR " + toBindVariables(sql));
+        }
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, ?, 'TYPICAL'))"
+        )) {
+            stmt.setString(1, statementId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString(1));
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM PLAN_TABLE WHERE STATEMENT_ID = ?")) {
+            stmt.setString(1, statementId);
+            stmt.executeUpdate();
+        }
+        return plan;
+    }
+
+    @Override
+    public String exportSnapshot(Connection conn) throws SQLException {
+        throw new SQLException("Database does not support snapshot export");
+    }
+
+    @Override
+    public void importSnapshot(Connection conn, String snapshot) throws SQLException {
+        throw new SQLException("Database does not support snapshot export");
+    }
+
+    /**
+     * Checks for ORA-00060 (deadlock detected) and ORA-08177 (cannot serialize access).
+     */
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            int code = e.getErrorCode();
+            if (code == 60 || code == 8177)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Uses ROWNUM, because FETCH FIRST is not available before Oracle 12c.
+     */
+    @Override
+    public String getLimitSql(String sql, int limit) {
+        return "SELECT * FROM (\n" + sql + "\n) WHERE ROWNUM <= " + limit;
+    }
+
+    @Override
+    public QueryPiece getKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        return Generic.getExpandedKeyGreaterCondition(keyColumns, lastKey);
+    }
 }
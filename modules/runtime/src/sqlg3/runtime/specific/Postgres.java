@@ -1,15 +1,28 @@
 package sqlg3.runtime.specific;
 
+import sqlg3.runtime.BulkLoad;
+import sqlg3.runtime.Parameter;
+import sqlg3.runtime.QueryPiece;
+import sqlg3.runtime.RuntimeMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * {@link sqlg3.runtime.DBSpecific} implementation for PostgreSQL.
  */
 public final class Postgres extends Generic {
 
+    private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
     public static String getNextSeqSql(String sequence) {
         return "SELECT NEXTVAL('" + sequence + "')";
     }
@@ -22,4 +35,235 @@ public final class Postgres extends Generic {
             return rs.getLong(1);
         }
     }
+
+    @Override
+    public List<String> explain(Connection conn, RuntimeMapper mappers, String sql, Parameter[] params) throws SQLException {
+        return queryPlan(conn, mappers, "EXPLAIN (FORMAT JSON) " + sql, params);
+    }
+
+    @Override
+    public String exportSnapshot(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_export_snapshot()");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Imported snapshot requires REPEATABLE READ isolation, so isolation level of connection is changed.
+     */
+    @Override
+    public void importSnapshot(Connection conn, String snapshot) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (PreparedStatement stmt = conn.prepareStatement("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'")) {
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Checks for 40001 (serialization failure) and 40P01 (deadlock detected).
+     */
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            String state = e.getSQLState();
+            if ("40001".equals(state) || "40P01".equals(state))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String getLimitSql(String sql, int limit) {
+        return sql + "\nLIMIT " + limit;
+    }
+
+    @Override
+    public QueryPiece getKeyGreaterCondition(String[] keyColumns, Parameter[] lastKey) {
+        return getRowValueKeyGreaterCondition(keyColumns, lastKey);
+    }
+
+    public static String getCopySql(BulkLoad load) {
+        return "COPY " + load.table + " (" + load.getColumnList() + ") FROM STDIN";
+    }
+
+    @Override
+    public String getUpsertSql(BulkLoad load, String[] keyColumns) {
+        String[] update = load.getNonKeyColumns(keyColumns);
+        StringBuilder buf = new StringBuilder(load.getInsertSql());
+        buf.append(" ON CONFLICT (").append(String.join(", ", keyColumns)).append(")");
+        if (update.length > 0) {
+            buf.append(" DO UPDATE SET ");
+            for (int i = 0; i < update.length; i++) {
+                if (i > 0)
+                    buf.append(", ");
+                buf.append(update[i]).append(" = EXCLUDED.").append(update[i]);
+            }
+        } else {
+            buf.append(" DO NOTHING");
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns PostgreSQL driver CopyManager or null if connection does not support COPY.
+     * Driver classes are accessed by reflection because driver is not required at compile time.
+     */
+    private static Object getCopyManager(Connection conn) throws SQLException {
+        Class<?> pgConnection;
+        try {
+            pgConnection = Class.forName(PG_CONNECTION, true, conn.getClass().getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+        if (!conn.isWrapperFor(pgConnection))
+            return null;
+        Object pgConn = conn.unwrap(pgConnection);
+        try {
+            return pgConnection.getMethod("getCopyAPI").invoke(pgConn);
+        } catch (InvocationTargetException ex) {
+            throw unwrap(ex);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    private static SQLException unwrap(InvocationTargetException ex) {
+        Throwable target = ex.getTargetException();
+        if (target instanceof SQLException) {
+            return (SQLException) target;
+        } else {
+            return new SQLException(target);
+        }
+    }
+
+    @Override
+    public long bulkLoad(Connection conn, RuntimeMapper mappers, BulkLoad load) throws SQLException {
+        Object copyManager = getCopyManager(conn);
+        if (copyManager == null)
+            return super.bulkLoad(conn, mappers, load);
+        CopyReader reader = new CopyReader(mappers, load);
+        try {
+            Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+            return ((Number) copyIn.invoke(copyManager, getCopySql(load), reader)).longValue();
+        } catch (InvocationTargetException ex) {
+            if (reader.error != null)
+                throw reader.error;
+            throw unwrap(ex);
+        } catch (ReflectiveOperationException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Produces COPY text format from rows on demand, so rows are never all in memory.
+     */
+    private static final class CopyReader extends Reader {
+
+        private final RuntimeMapper mappers;
+        private final BulkLoad load;
+        private final Object[] captured;
+        private final PreparedStatement capture;
+
+        private final StringBuilder line = new StringBuilder();
+        private int pos = 0;
+        SQLException error = null;
+
+        CopyReader(RuntimeMapper mappers, BulkLoad load) {
+            this.mappers = mappers;
+            this.load = load;
+            this.captured = new Object[load.columns.length];
+            this.capture = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        int index = (Integer) args[0];
+                        captured[index - 1] = "setNull".equals(name) ? null : args[1];
+                        return null;
+                    }
+                    throw new SQLException("Method " + name + " cannot be used by mapper in COPY");
+                }
+            );
+        }
+
+        private static void appendText(StringBuilder buf, String str) {
+            for (int i = 0; i < str.length(); i++) {
+                char ch = str.charAt(i);
+                switch (ch) {
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    buf.append(ch);
+                }
+            }
+        }
+
+        private static void appendValue(StringBuilder buf, Object value) {
+            if (value == null) {
+                buf.append("\\N");
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                buf.append("\\\\x");
+                for (byte b : bytes) {
+                    buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+                    buf.append(Character.forDigit(b & 0xF, 16));
+                }
+            } else if (value instanceof Boolean) {
+                buf.append((Boolean) value ? 't' : 'f');
+            } else {
+                appendText(buf, value.toString());
+            }
+        }
+
+        private boolean nextLine() throws SQLException {
+            if (!load.rows.hasNext())
+                return false;
+            line.setLength(0);
+            pos = 0;
+            int count = load.setRow(mappers, capture, load.rows.next());
+            if (count != captured.length)
+                throw new SQLException("Custom mappers with multiple parameters are not supported by COPY");
+            for (int i = 0; i < captured.length; i++) {
+                if (i > 0) {
+                    line.append('\t');
+                }
+                appendValue(line, captured[i]);
+            }
+            line.append('\n');
+            return true;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (pos >= line.length()) {
+                try {
+                    if (!nextLine())
+                        return -1;
+                } catch (SQLException ex) {
+                    error = ex;
+                    throw new IOException(ex);
+                }
+            }
+            int count = Math.min(len, line.length() - pos);
+            line.getChars(pos, pos + count, cbuf, off);
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }